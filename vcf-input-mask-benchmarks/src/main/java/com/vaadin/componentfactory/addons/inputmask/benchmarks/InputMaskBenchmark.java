@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask.benchmarks;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.lazy;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.option;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vaadin.componentfactory.addons.inputmask.InputMask;
+import com.vaadin.componentfactory.addons.inputmask.InputMaskOption;
+import com.vaadin.componentfactory.addons.inputmask.InputMaskSpec;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.server.VaadinSession;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Server-side costs of {@link InputMask} as a component: construction, extend/attach/detach
+ * cycles and options serialization.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InputMaskBenchmark {
+
+	private static final String PHONE = "(000) 000-0000";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private List<InputMaskOption> options;
+	private UI ui;
+	private TextField field;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("serial")
+	public void setUp() {
+		options = Arrays.asList(option("mask", PHONE), lazy(false));
+		ui = new UI();
+		ui.getInternals().setSession(new VaadinSession(null) {
+			@Override
+			public boolean hasLock() {
+				return true;
+			}
+		});
+		UI.setCurrent(ui);
+		field = new TextField();
+		InputMask mask = new InputMask(PHONE, lazy(false));
+		// without keep-alive the first detach removes the mask, and later invocations of reattach and
+		// serverValueChange would only measure a bare TextField
+		mask.setKeepAliveTimeout(60000);
+		mask.extend(field);
+		ui.add(field);
+		flush();
+		ui.remove(field);
+		ui.add(field);
+		if (field.getElement().getChildren().noneMatch(mask.getElement()::equals)) {
+			throw new IllegalStateException("InputMask was not kept on the detached field");
+		}
+		ui.remove(field);
+		flush();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		UI.setCurrent(null);
+	}
+
+	@Benchmark
+	public InputMask construct() {
+		return new InputMask(PHONE, lazy(false));
+	}
+
+	@Benchmark
+	public InputMaskSpec specLookup() {
+		return InputMaskSpec.of(options);
+	}
+
+	@Benchmark
+	public String optionsJson() throws JsonProcessingException {
+		return InputMaskSpec.of(options).getOptionsJson();
+	}
+
+	/**
+	 * Baseline: serializing the options with a new ObjectMapper, as done on every attach before the
+	 * JSON was memoized.
+	 */
+	@Benchmark
+	public String optionsJsonUncached() throws JsonProcessingException {
+		return new ObjectMapper().writeValueAsString(options);
+	}
+
+	@Benchmark
+	public String optionsJsonSharedMapper() throws JsonProcessingException {
+		return objectMapper.writeValueAsString(options);
+	}
+
+	@Benchmark
+	public TextField extendAttachDetach() {
+		TextField textField = new TextField();
+		new InputMask(PHONE, lazy(false)).extend(textField);
+		ui.add(textField);
+		flush();
+		ui.remove(textField);
+		return textField;
+	}
+
+	@Benchmark
+	public TextField reattach() {
+		ui.add(field);
+		flush();
+		ui.remove(field);
+		return field;
+	}
+
+	@Benchmark
+	public TextField serverValueChange() {
+		ui.add(field);
+		field.setValue("1112223333");
+		field.setValue("");
+		flush();
+		ui.remove(field);
+		return field;
+	}
+
+	private void flush() {
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+		ui.getInternals().getStateTree().collectChanges(change -> {
+		});
+	}
+}
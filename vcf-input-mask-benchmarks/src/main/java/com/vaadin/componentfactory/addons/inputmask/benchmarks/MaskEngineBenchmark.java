@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask.benchmarks;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.blocks;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.option;
+
+import com.vaadin.componentfactory.addons.inputmask.InputMaskFormatter;
+import com.vaadin.componentfactory.addons.inputmask.MaskedValue;
+import com.vaadin.componentfactory.addons.inputmask.PatternMask;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Server-side mask, unmask and format paths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MaskEngineBenchmark {
+
+	private PatternMask phone;
+	private PatternMask date;
+	private InputMaskFormatter formatter;
+	private List<String> rows;
+
+	@Setup
+	public void setUp() {
+		phone = PatternMask.compile("(000) 000-0000");
+		date = PatternMask.compile("MM/DD/YYYY",
+				blocks(option("MM", option("mask", "IMask.MaskedRange", true), option("from", 1), option("to", 12)),
+						option("DD", option("mask", "IMask.MaskedRange", true), option("from", 1), option("to", 31)),
+						option("YYYY", option("mask", "0000"))));
+		formatter = InputMaskFormatter.of("(000) 000-0000");
+		rows = IntStream.range(0, 1_000).mapToObj(i -> String.format("555%07d", i)).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public PatternMask compile() {
+		return PatternMask.compile("(000) 000-0000");
+	}
+
+	@Benchmark
+	public String mask() {
+		return phone.mask("5551234567");
+	}
+
+	@Benchmark
+	public String unmask() {
+		return phone.unmask("(555) 123-4567");
+	}
+
+	@Benchmark
+	public MaskedValue resolveDate() {
+		return date.resolve("12312023");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(1_000)
+	public void formatTo(Blackhole blackhole) {
+		formatter.formatTo(rows, blackhole::consume);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(1_000)
+	public List<String> formatAllParallel() {
+		return formatter.formatAll(rows, true);
+	}
+}
@@ -38,7 +38,7 @@ public class BinderDemoView extends BaseDemoView {
     TextField phoneField = new TextField("Phone");
     phoneField.setPlaceholder(PHONE_MASK);
     phoneField.setHelperText(
-        "Binder validation will be triggered if entered phone number has length < 14.");
+        "Binder validation will be triggered if entered phone number is incomplete.");
 
     // create input mask for text field
     InputMask phoneFieldMask = new InputMask(PHONE_MASK);
@@ -49,7 +49,8 @@ public class BinderDemoView extends BaseDemoView {
 
     // bind phone field
     binder.forField(phoneField).withNullRepresentation("").asRequired("Field is required")
-        .withValidator(this::validatePhone).bind(Person::getPhone, Person::setPhone);
+        .withValidator(phoneFieldMask.createValidator("Enter a complete phone number"))
+        .bind(Person::getPhone, Person::setPhone);
 
     // set bean to binder
     Person person = new Person();
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.vaadin.flow.data.binder.Result;
+import com.vaadin.flow.data.binder.ValueContext;
+import com.vaadin.flow.data.converter.Converter;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side date mask, created with {@link InputMaskSpec#date(String, InputMaskOption...)}
+ * from a fixed-width pattern using {@code yyyy} (or {@code uuuu}), {@code MM}, {@code dd},
+ * {@code HH}, {@code mm} and {@code ss}, e.g. {@code "MM/dd/yyyy"} or {@code "dd.MM.yyyy HH:mm"}.
+ * In the browser it is a pattern mask with range blocks for the fields.
+ * <p>
+ * Values are converted to {@link LocalDate} and {@link LocalDateTime} by reading the digits at
+ * the field offsets of the pattern, which are cached for recently used patterns. Invalid values (e.g.
+ * February 30) are reported as not complete and converted to {@code null}, without exceptions.
+ */
+public final class DateMask extends MaskEngine {
+
+	private static final long serialVersionUID = 1L;
+
+	static final String DATE_PATTERN = "datePattern";
+
+	static final int MAX_PLANS = 256;
+
+	/**
+	 * Plans of the most recently used patterns. Bounded like {@link InputMaskSpecCache}, since
+	 * patterns may be built at runtime, e.g. per locale.
+	 */
+	private static final Map<String, Plan> PLANS = Collections
+			.synchronizedMap(new LinkedHashMap<String, Plan>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Plan> eldest) {
+					return size() > MAX_PLANS;
+				}
+			});
+
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+
+	private static final int YEAR = 0;
+	private static final int MONTH = 1;
+	private static final int DAY = 2;
+	private static final int HOUR = 3;
+	private static final int MINUTE = 4;
+	private static final int SECOND = 5;
+
+	private static final int[] MIN_VALUES = { 1, 1, 1, 0, 0, 0 };
+	private static final int[] MAX_VALUES = { 9999, 12, 31, 23, 59, 59 };
+
+	private final Plan plan;
+	private final PatternMask patternMask;
+
+	private DateMask(Plan plan, PatternMask patternMask) {
+		this.plan = plan;
+		this.patternMask = patternMask;
+	}
+
+	/**
+	 * Compiles a date mask from a list of options containing the {@code datePattern} option added
+	 * by {@link InputMaskSpec#date(String, InputMaskOption...)}.
+	 */
+	public static DateMask compile(List<InputMaskOption> options) {
+		String pattern = null;
+		for (InputMaskOption option : options) {
+			if (option != null && DATE_PATTERN.equals(option.getKey())) {
+				pattern = (String) option.getValue();
+			}
+		}
+		return new DateMask(plan(pattern), PatternMask.compile(options));
+	}
+
+	/**
+	 * Returns the imask options of a date mask with the given pattern.
+	 *
+	 * @throws IllegalArgumentException if the pattern uses unsupported letters
+	 */
+	static List<InputMaskOption> options(String pattern) {
+		Plan plan = plan(pattern);
+		List<InputMaskOption> options = new ArrayList<>(3);
+		options.add(InputMaskOption.option("mask", plan.imaskPattern));
+		InputMaskOption[] blocks = new InputMaskOption[plan.blockNames.length];
+		for (int i = 0; i < blocks.length; i++) {
+			int field = plan.blockFields[i];
+			blocks[i] = InputMaskOption.option(plan.blockNames[i],
+					InputMaskOption.function("mask", PatternMask.MASKED_RANGE),
+					InputMaskOption.option("from", MIN_VALUES[field]),
+					InputMaskOption.option("to", MAX_VALUES[field]),
+					InputMaskOption.option("maxLength", plan.width[field]));
+		}
+		options.add(InputMaskOption.blocks(blocks));
+		options.add(InputMaskOption.option(DATE_PATTERN, pattern));
+		return options;
+	}
+
+	private static Plan plan(String pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("Date pattern is missing");
+		}
+		return PLANS.computeIfAbsent(pattern, Plan::new);
+	}
+
+	/** Number of cached plans, for tests. */
+	static int cachedPlans() {
+		return PLANS.size();
+	}
+
+	public String getPattern() {
+		return plan.pattern;
+	}
+
+	@Override
+	public boolean isSupported() {
+		return true;
+	}
+
+	@Override
+	int resolve(CharSequence input, StringBuilder masked, StringBuilder unmasked) {
+		StringBuilder target = masked;
+		if (target == null) {
+			target = BUFFER.get();
+			target.setLength(0);
+		}
+		int start = target.length();
+		int flags = patternMask.resolve(input, target, unmasked);
+		if ((flags & COMPLETE) != 0 && !plan.isValid(target, start, plan.offset)) {
+			flags = (flags & ~COMPLETE) | REJECTED;
+		}
+		return flags;
+	}
+
+	/**
+	 * Returns the date of the given masked (or digits only) value, or {@code null} if it is not a
+	 * complete, valid date of this pattern.
+	 *
+	 * @throws IllegalStateException if the pattern has no year, month or day
+	 */
+	public LocalDate toLocalDate(CharSequence value) {
+		if (plan.offset[YEAR] < 0 || plan.offset[MONTH] < 0 || plan.offset[DAY] < 0) {
+			throw new IllegalStateException("Pattern " + plan.pattern + " has no year, month or day");
+		}
+		int[] offsets = plan.offsetsFor(value);
+		if (offsets == null || !plan.isValid(value, 0, offsets)) {
+			return null;
+		}
+		return LocalDate.of(plan.read(value, 0, offsets, YEAR), plan.read(value, 0, offsets, MONTH),
+				plan.read(value, 0, offsets, DAY));
+	}
+
+	/**
+	 * Returns the date and time of the given masked (or digits only) value, or {@code null} if it
+	 * is not a complete, valid value of this pattern. Time fields missing in the pattern are zero.
+	 *
+	 * @throws IllegalStateException if the pattern has no year, month or day
+	 */
+	public LocalDateTime toLocalDateTime(CharSequence value) {
+		LocalDate date = toLocalDate(value);
+		if (date == null) {
+			return null;
+		}
+		int[] offsets = plan.offsetsFor(value);
+		return date.atTime(plan.read(value, 0, offsets, HOUR), plan.read(value, 0, offsets, MINUTE),
+				plan.read(value, 0, offsets, SECOND));
+	}
+
+	/**
+	 * Formats the given date as the browser would display it. Time fields of the pattern are zero.
+	 */
+	public String format(LocalDate value) {
+		StringBuilder result = new StringBuilder(plan.literals.length);
+		plan.format(value.getYear(), value.getMonthValue(), value.getDayOfMonth(), 0, 0, 0, result);
+		return result.toString();
+	}
+
+	/**
+	 * Formats the given date and time as the browser would display it.
+	 */
+	public String format(LocalDateTime value) {
+		StringBuilder result = new StringBuilder(plan.literals.length);
+		plan.format(value.getYear(), value.getMonthValue(), value.getDayOfMonth(), value.getHour(),
+				value.getMinute(), value.getSecond(), result);
+		return result.toString();
+	}
+
+	/**
+	 * Returns a Binder converter between the masked text and its date.
+	 */
+	public Converter<String, LocalDate> toLocalDateConverter(String errorMessage) {
+		return new DateConverter<LocalDate>(errorMessage) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			LocalDate parse(String value) {
+				return toLocalDate(value);
+			}
+
+			@Override
+			public String convertToPresentation(LocalDate value, ValueContext context) {
+				return value == null ? "" : format(value);
+			}
+		};
+	}
+
+	/**
+	 * Returns a Binder converter between the masked text and its date and time.
+	 */
+	public Converter<String, LocalDateTime> toLocalDateTimeConverter(String errorMessage) {
+		return new DateConverter<LocalDateTime>(errorMessage) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			LocalDateTime parse(String value) {
+				return toLocalDateTime(value);
+			}
+
+			@Override
+			public String convertToPresentation(LocalDateTime value, ValueContext context) {
+				return value == null ? "" : format(value);
+			}
+		};
+	}
+
+	@Override
+	int sizeHint() {
+		return plan.literals.length;
+	}
+
+	@Override
+	public String toString() {
+		return "DateMask[" + plan.pattern + "]";
+	}
+
+	private abstract static class DateConverter<T> implements Converter<String, T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String errorMessage;
+
+		DateConverter(String errorMessage) {
+			this.errorMessage = errorMessage;
+		}
+
+		abstract T parse(String value);
+
+		@Override
+		public Result<T> convertToModel(String value, ValueContext context) {
+			if (value == null || value.isEmpty()) {
+				return Result.ok(null);
+			}
+			T result = parse(value);
+			return result == null ? Result.error(errorMessage) : Result.ok(result);
+		}
+	}
+
+	/**
+	 * Field offsets of a date pattern, in the masked value and in the digits only value.
+	 */
+	private static final class Plan implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String pattern;
+		/** Fixed chars of the masked value, {@code 0} at field positions. */
+		private final char[] literals;
+		private final int[] offset = { -1, -1, -1, -1, -1, -1 };
+		private final int[] digitOffset = { -1, -1, -1, -1, -1, -1 };
+		private final int[] width = { 4, 2, 2, 2, 2, 2 };
+		private final int digits;
+		private final String imaskPattern;
+		private final String[] blockNames;
+		private final int[] blockFields;
+
+		Plan(String pattern) {
+			this.pattern = pattern;
+			this.literals = new char[pattern.length()];
+			StringBuilder imask = new StringBuilder();
+			List<String> names = new ArrayList<>();
+			int digitCount = 0;
+			for (int i = 0; i < pattern.length();) {
+				char c = pattern.charAt(i);
+				int run = 1;
+				while (i + run < pattern.length() && pattern.charAt(i + run) == c) {
+					run++;
+				}
+				int field = field(c, run);
+				if (field < 0) {
+					if (Character.isLetter(c)) {
+						throw new IllegalArgumentException("Unsupported date pattern " + pattern + ": " + pattern.substring(i, i + run));
+					}
+					if ("0a*[]{}`\\".indexOf(c) >= 0) {
+						imask.append('\\');
+					}
+					imask.append(c);
+					literals[i] = c;
+					i++;
+					continue;
+				}
+				if (offset[field] >= 0) {
+					throw new IllegalArgumentException("Duplicate field in date pattern " + pattern);
+				}
+				offset[field] = i;
+				digitOffset[field] = digitCount;
+				digitCount += run;
+				String name = pattern.substring(i, i + run);
+				names.add(name);
+				imask.append(name);
+				i += run;
+			}
+			this.digits = digitCount;
+			this.imaskPattern = imask.toString();
+			this.blockNames = names.toArray(new String[0]);
+			this.blockFields = new int[blockNames.length];
+			for (int i = 0; i < blockNames.length; i++) {
+				blockFields[i] = field(blockNames[i].charAt(0), blockNames[i].length());
+			}
+		}
+
+		private static int field(char c, int run) {
+			switch (c) {
+				case 'y':
+				case 'u':
+					return run == 4 ? YEAR : -1;
+				case 'M':
+					return run == 2 ? MONTH : -1;
+				case 'd':
+					return run == 2 ? DAY : -1;
+				case 'H':
+					return run == 2 ? HOUR : -1;
+				case 'm':
+					return run == 2 ? MINUTE : -1;
+				case 's':
+					return run == 2 ? SECOND : -1;
+				default:
+					return -1;
+			}
+		}
+
+		/**
+		 * Returns the offsets to read the given value with, or {@code null} if it has neither the
+		 * length of a masked nor of a digits only value.
+		 */
+		int[] offsetsFor(CharSequence value) {
+			if (value == null) {
+				return null;
+			}
+			if (value.length() == literals.length) {
+				for (int i = 0; i < literals.length; i++) {
+					if (literals[i] != 0 && value.charAt(i) != literals[i]) {
+						return null;
+					}
+				}
+				return offset;
+			}
+			return value.length() == digits ? digitOffset : null;
+		}
+
+		/**
+		 * Returns the value of a field, {@code 0} if the pattern does not have it and {@code -1} if
+		 * it is not made of digits.
+		 */
+		int read(CharSequence value, int start, int[] offsets, int field) {
+			int position = offsets[field];
+			if (position < 0) {
+				return 0;
+			}
+			int result = 0;
+			for (int i = start + position, end = i + width[field]; i < end; i++) {
+				char c = value.charAt(i);
+				if (c < '0' || c > '9') {
+					return -1;
+				}
+				result = result * 10 + (c - '0');
+			}
+			return result;
+		}
+
+		boolean isValid(CharSequence value, int start, int[] offsets) {
+			for (int field = YEAR; field <= SECOND; field++) {
+				if (offsets[field] >= 0) {
+					int fieldValue = read(value, start, offsets, field);
+					if (fieldValue < MIN_VALUES[field] || fieldValue > MAX_VALUES[field]) {
+						return false;
+					}
+				}
+			}
+			if (offsets[DAY] < 0 || offsets[MONTH] < 0) {
+				return true;
+			}
+			int month = read(value, start, offsets, MONTH);
+			int day = read(value, start, offsets, DAY);
+			if (month == 2) {
+				// without a year, February 29 is accepted
+				int year = offsets[YEAR] < 0 ? 0 : read(value, start, offsets, YEAR);
+				boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+				return day <= (leap ? 29 : 28);
+			}
+			return day <= (month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31);
+		}
+
+		void format(int year, int month, int day, int hour, int minute, int second, StringBuilder target) {
+			int[] values = { year, month, day, hour, minute, second };
+			for (int i = 0; i < literals.length;) {
+				if (literals[i] != 0) {
+					target.append(literals[i++]);
+					continue;
+				}
+				int field = fieldAt(i);
+				int fieldValue = values[field];
+				for (int d = width[field] - 1; d >= 0; d--) {
+					int power = d == 0 ? 1 : d == 1 ? 10 : d == 2 ? 100 : 1000;
+					target.append((char) ('0' + fieldValue / power % 10));
+				}
+				i += width[field];
+			}
+		}
+
+		private int fieldAt(int position) {
+			for (int field = YEAR; field <= SECOND; field++) {
+				if (offset[field] == position) {
+					return field;
+				}
+			}
+			throw new IllegalStateException("No field at " + position);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Server-side implementation of imask's dynamic mask, created with
+ * {@link InputMaskOption#dynamic(InputMaskOption...)}. A value is resolved with the first
+ * candidate that accepts all of its chars (or the first plausible candidate if none does), which
+ * is what the browser picks while the value is typed in.
+ * <p>
+ * Candidates are indexed by the chars a value can start with when the mask is compiled, so
+ * resolving a value only tries the candidates its first char can belong to, e.g. only the VAT id
+ * candidate for a value starting with a letter.
+ */
+public final class DynamicMask extends MaskEngine {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int TABLE_SIZE = 128;
+
+	private final PatternMask[] candidates;
+	private final int[][] byFirstChar;
+	private final int[] all;
+	private final boolean supported;
+	private final int sizeHint;
+
+	private DynamicMask(PatternMask[] candidates) {
+		this.candidates = candidates;
+		boolean allSupported = candidates.length > 0;
+		int maxSize = 16;
+		for (PatternMask candidate : candidates) {
+			allSupported &= candidate.isSupported();
+			maxSize = Math.max(maxSize, candidate.sizeHint());
+		}
+		this.supported = allSupported;
+		this.sizeHint = maxSize;
+		this.all = new int[candidates.length];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = i;
+		}
+		this.byFirstChar = new int[TABLE_SIZE][];
+		int[] buffer = new int[candidates.length];
+		for (char c = 0; c < TABLE_SIZE; c++) {
+			int count = 0;
+			for (int i = 0; i < candidates.length; i++) {
+				if (candidates[i].mayStartWith(c)) {
+					buffer[count++] = i;
+				}
+			}
+			// a char no candidate accepts is dropped; the next chars decide
+			byFirstChar[c] = count == 0 || count == all.length ? all : Arrays.copyOf(buffer, count);
+		}
+	}
+
+	/**
+	 * Compiles a dynamic mask from a list of options whose {@code mask} option holds the
+	 * candidates. A {@code prepare} option applies to all candidates.
+	 */
+	public static DynamicMask compile(List<InputMaskOption> options) {
+		InputMaskOption[] candidateOptions = null;
+		InputMaskOption prepare = null;
+		for (InputMaskOption option : options) {
+			if (option == null) {
+				continue;
+			}
+			if ("mask".equals(option.getKey())) {
+				candidateOptions = PatternMask.Compiler.asOptions(option.getValue());
+			} else if ("prepare".equals(option.getKey())) {
+				prepare = option;
+			}
+		}
+		List<PatternMask> candidates = new ArrayList<>();
+		if (candidateOptions != null) {
+			for (InputMaskOption candidate : candidateOptions) {
+				List<InputMaskOption> candidateMask = new ArrayList<>();
+				candidateMask.add(prepare);
+				InputMaskOption[] own = PatternMask.Compiler.asOptions(candidate.getValue());
+				if (own != null) {
+					candidateMask.addAll(Arrays.asList(own));
+				}
+				candidates.add(PatternMask.compile(candidateMask));
+			}
+		}
+		return new DynamicMask(candidates.toArray(new PatternMask[0]));
+	}
+
+	/**
+	 * Returns the candidate masks, in the order they are tried.
+	 */
+	public List<PatternMask> getCandidates() {
+		return Collections.unmodifiableList(Arrays.asList(candidates));
+	}
+
+	@Override
+	public boolean isSupported() {
+		return supported;
+	}
+
+	/**
+	 * Returns the candidate the given value is resolved with.
+	 *
+	 * @throws UnsupportedOperationException if the mask is not {@link #isSupported() supported}
+	 */
+	public PatternMask select(CharSequence value) {
+		if (!supported) {
+			throw new UnsupportedOperationException("Dynamic mask " + this + " cannot be resolved on the server");
+		}
+		int[] plausible = value == null || value.length() == 0 || value.charAt(0) >= TABLE_SIZE ? all
+				: byFirstChar[value.charAt(0)];
+		if (plausible.length > 1) {
+			for (int index : plausible) {
+				if ((candidates[index].resolve(value, null, null) & REJECTED) == 0) {
+					return candidates[index];
+				}
+			}
+		}
+		return candidates[plausible[0]];
+	}
+
+	@Override
+	int resolve(CharSequence input, StringBuilder masked, StringBuilder unmasked) {
+		return select(input).resolve(input, masked, unmasked);
+	}
+
+	@Override
+	int sizeHint() {
+		return sizeHint;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("DynamicMask[");
+		for (int i = 0; i < candidates.length; i++) {
+			result.append(i == 0 ? "" : ", ").append(candidates[i].getPattern());
+		}
+		return result.append(']').toString();
+	}
+}
@@ -13,11 +13,11 @@
  */
 package com.vaadin.componentfactory.addons.inputmask;
 
-import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.option;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vaadin.flow.component.AbstractSinglePropertyField;
+import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.HasValidation;
 import com.vaadin.flow.component.HasValue;
 import com.vaadin.flow.component.Tag;
@@ -25,13 +25,19 @@ import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.dependency.NpmPackage;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.binder.Validator;
+import com.vaadin.flow.data.value.HasValueChangeMode;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.dom.Element;
 import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.internal.StateTree.ExecutionRegistration;
 import com.vaadin.flow.shared.Registration;
+import elemental.json.JsonObject;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,75 +45,201 @@ import org.slf4j.LoggerFactory;
 @Tag(InputMask.TAG_NAME)
 @NpmPackage(value = "imask", version = "7.1.3")
 @JsModule("./src/input-mask.js")
-public class InputMask extends AbstractSinglePropertyField<InputMask, String> implements HasValidation {
+public class InputMask extends AbstractSinglePropertyField<InputMask, String> implements HasValidation, HasValueChangeMode {
 
 	private static final Logger logger = LoggerFactory.getLogger(InputMask.class);
 
+	private static volatile InputMaskMetrics metrics = InputMaskMetrics.NOOP;
+
     static final String TAG_NAME = "input-mask";
 
-	private WeakReference<Component> extended;
+    static final String INPUT_EVENT = "unmasked-value-input";
+    static final String CHANGE_EVENT = "unmasked-value-changed";
+    static final String BLUR_EVENT = "unmasked-value-blur";
+
+	private transient WeakReference<Component> extended;
 	private Registration attachRegistration = null;
+	private Registration detachRegistration;
     private Registration valueChangeRegistration;
-	private List<InputMaskOption> options;
+	private final InputMaskSpec spec;
+	private ValueChangeMode valueChangeMode = ValueChangeMode.ON_CHANGE;
+	private int valueChangeTimeout = DEFAULT_CHANGE_TIMEOUT;
+	private boolean valuePushPending;
+	private transient ExecutionRegistration valuePushRegistration;
+	private Registration metricsRegistration;
 
 	public InputMask(String mask, InputMaskOption... options) {
 		this(mask, false, options);
 	}
 
 	public InputMask(String mask, boolean evalMask, InputMaskOption... options) {
+		this(InputMaskSpec.of(mask, evalMask, options));
+	}
+
+	/**
+	 * Creates a mask referencing the given shared specification; nothing is copied or parsed.
+	 */
+	public InputMask(InputMaskSpec spec) {
 	    super("unmaskedValue", "", false);
-		this.options = new ArrayList<>();
-		this.options.add(option("mask", mask, evalMask));
-		if (options != null) {
-			this.options.addAll(Arrays.asList(options));
-		}
+		this.spec = Objects.requireNonNull(spec, "spec");
 	}
 
+	/**
+	 * Applies this mask to the given component. A previous extension of this mask, on the same or
+	 * another component, is removed first, so each extended component holds at most one attach,
+	 * detach and value change listener of this mask no matter how often {@code extend} is called.
+	 */
 	public void extend(Component component) {
+	    remove();
 	    extended = new WeakReference<Component>(component);
 		if (component.getUI().isPresent()) {
 			extend(component, component.getUI().get());
 		} else {		    
 			attachRegistration = component.addAttachListener(event -> extend(component, event.getUI()));
-			component.addDetachListener(event -> remove());
+			detachRegistration = component.addDetachListener(event -> {
+				if (getKeepAliveTimeout() <= 0) {
+					remove();
+				}
+			});
 		}
 	}
 
     @SuppressWarnings("unchecked")
     private void extend(Component component, UI ui) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            getElement().setProperty("options", objectMapper.writeValueAsString(options));
-            
-            Element componentElement = component.getElement();
+        Element componentElement = component.getElement();
+        if (!componentElement.equals(getElement().getParent())) {
             // remove any existing input-mask element attached to component
             componentElement.getChildren()
                     .filter(child -> TAG_NAME.equalsIgnoreCase(child.getTag()))
                     .findAny().ifPresent(componentElement::removeChild);
             componentElement.appendChild(getElement());
-            
-            if (HasValue.class.isAssignableFrom(component.getClass())) {
-                valueChangeRegistration = HasValue.class.cast(component).addValueChangeListener(e -> {
-                    if (!e.isFromClient()) {
-                        getElement().executeJs("this.setValue($0.inputElement ? $0.inputElement.value : '')",
-                                component.getElement());
-                    }
-                });
+        }
+        
+        if (valueChangeRegistration != null) {
+            // re-attached while kept alive
+            valueChangeRegistration.remove();
+        }
+        if (HasValue.class.isAssignableFrom(component.getClass())) {
+            valueChangeRegistration = HasValue.class.cast(component).addValueChangeListener(e -> {
+                if (!e.isFromClient()) {
+                    scheduleValuePush();
+                }
+            });
+        }
+    }
+
+    /**
+     * Pushes the value of the extended component to the mask once before the response is sent, no
+     * matter how many server-side value changes happened during the request.
+     */
+    private void scheduleValuePush() {
+        if (valuePushPending) {
+            return;
+        }
+        valuePushPending = true;
+        getElement().getNode().runWhenAttached(ui -> {
+            // skipped when removed meanwhile, or when a later extend already scheduled the push
+            if (valuePushPending && valuePushRegistration == null) {
+                valuePushRegistration = ui.beforeClientResponse(this, context -> pushValue());
             }
+        });
+    }
+
+    private void pushValue() {
+        valuePushPending = false;
+        valuePushRegistration = null;
+        Component component = extended != null ? extended.get() : null;
+        if (component == null) {
+            return;
+        }
+        metrics.roundTrip(spec, InputMaskMetrics.RoundTrip.VALUE_PUSH);
+        getElement().executeJs("this.setValue($0.inputElement ? $0.inputElement.value : '')",
+                component.getElement());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // WeakReference is not serializable; the component itself is already part of the session
+        out.writeObject(extended != null ? extended.get() : null);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Component component = (Component) in.readObject();
+        extended = component != null ? new WeakReference<Component>(component) : null;
+    }
+
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        metrics.attached(spec);
+        if (metrics != InputMaskMetrics.NOOP && metricsRegistration == null) {
+            listenToClientMetrics();
+        }
+        try {
+            // the definition is sent once per UI, the element only references it by id
+            getElement().setProperty("definition",
+                    MaskDefinitionRegistry.register(attachEvent.getUI(), spec));
         } catch (JsonProcessingException ex) {
             logger.error("Error serializing InputMask options", ex);
         }
     }
 
+    /**
+     * Asks the browser to report IMask initialization and keystroke timings. They are collected on
+     * the client and sent after the first initialization, when the field loses focus and when the
+     * mask is disconnected.
+     */
+    private void listenToClientMetrics() {
+        getElement().setProperty("reportMetrics", true);
+        metricsRegistration = getElement().addEventListener("input-mask-metrics", event -> {
+            JsonObject data = event.getEventData();
+            int inits = (int) data.getNumber("event.detail.inits");
+            if (inits > 0) {
+                metrics.clientInitialized(spec, inits, data.getNumber("event.detail.initTime"));
+            }
+            int keystrokes = (int) data.getNumber("event.detail.keystrokes");
+            if (keystrokes > 0) {
+                metrics.clientKeystrokes(spec, keystrokes, data.getNumber("event.detail.keystrokeTime"));
+            }
+        }).addEventData("event.detail.inits").addEventData("event.detail.initTime")
+                .addEventData("event.detail.keystrokes").addEventData("event.detail.keystrokeTime");
+    }
+
+    /**
+     * Sets the listener receiving the metrics of all InputMasks in the JVM. Client-side timings are
+     * only reported by masks attached after a listener other than {@link InputMaskMetrics#NOOP} is
+     * set.
+     */
+    public static void setMetrics(InputMaskMetrics metrics) {
+        InputMask.metrics = metrics == null ? InputMaskMetrics.NOOP : metrics;
+    }
+
+    public static InputMaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Removes this mask from the extended component, together with all listeners it added.
+     */
     public void remove() {
         if (attachRegistration != null) {
             attachRegistration.remove();
             attachRegistration = null;
         }
+        if (detachRegistration != null) {
+            detachRegistration.remove();
+            detachRegistration = null;
+        }
         if (valueChangeRegistration != null) {
             valueChangeRegistration.remove();
             valueChangeRegistration = null;
         }
+        if (valuePushRegistration != null) {
+            valuePushRegistration.remove();
+            valuePushRegistration = null;
+        }
+        valuePushPending = false;
         if (extended != null) {
             getElement().removeFromParent();
             extended.clear();
@@ -116,16 +248,191 @@ public class InputMask extends AbstractSinglePropertyField<InputMask, String> im
     }
 
 	public void getUnmaskedValue(SerializableConsumer<String> consumer) {
+        metrics.roundTrip(spec, InputMaskMetrics.RoundTrip.GET_UNMASKED_VALUE);
         this.getElement().executeJs("return this.getUnmaskedValue()").then(String.class, value -> {
 			consumer.accept(value);
 		});
     }
 
 	public void getMaskedValue(SerializableConsumer<String> consumer) {
+        metrics.roundTrip(spec, InputMaskMetrics.RoundTrip.GET_MASKED_VALUE);
         this.getElement().executeJs("return this.getMaskedValue()").then(String.class, value -> {
 			consumer.accept(value);
 		});
     }
+
+    /**
+     * Adds a listener receiving masked value, unmasked value and completeness whenever the value of
+     * the extended field changes in the browser, without a {@link #getMaskedValue(SerializableConsumer)}
+     * round trip.
+     */
+    public Registration addMaskedValueChangeListener(ComponentEventListener<MaskedValueChangeEvent> listener) {
+        return addListener(MaskedValueChangeEvent.class, listener);
+    }
+
+    /**
+     * Applies the mask to the given value on the server, without a round trip to the browser.
+     *
+     * @throws UnsupportedOperationException if the mask uses options that only exist in the browser
+     * @see MaskEngine#isSupported()
+     */
+    public String mask(String value) {
+        return getMaskEngine().mask(value);
+    }
+
+    /**
+     * Removes the mask from the given value on the server, without a round trip to the browser.
+     * E.g. {@code unmask(phoneField.getValue())} returns the same value as
+     * {@link #getUnmaskedValue(SerializableConsumer)} would pass to its consumer.
+     *
+     * @throws UnsupportedOperationException if the mask uses options that only exist in the browser
+     * @see MaskEngine#isSupported()
+     */
+    public String unmask(String value) {
+        return getMaskEngine().unmask(value);
+    }
+
+    /**
+     * Returns whether the given value fills all required parts of the mask, checked on the server.
+     *
+     * @throws UnsupportedOperationException if the mask uses options that only exist in the browser
+     * @see MaskEngine#isComplete(CharSequence)
+     */
+    public boolean isComplete(String value) {
+        return getMaskEngine().isComplete(value);
+    }
+
+    /**
+     * Returns whether the mask accepts every char of the given value, checked on the server.
+     *
+     * @throws UnsupportedOperationException if the mask uses options that only exist in the browser
+     * @see MaskEngine#accepts(CharSequence)
+     */
+    public boolean accepts(String value) {
+        return getMaskEngine().accepts(value);
+    }
+
+    /**
+     * Returns a Binder validator that accepts empty values and values this mask accepts and
+     * completes. E.g. {@code binder.forField(phoneField).withValidator(phoneMask.createValidator("Enter a
+     * complete phone number"))}.
+     */
+    public Validator<String> createValidator(String errorMessage) {
+        return new InputMaskValidator(errorMessage, spec);
+    }
+
+    /**
+     * Validates the current value of the extended field on the server and updates its invalid
+     * state and error message through {@link HasValidation}. Only needed without a Binder.
+     *
+     * @return whether the value is valid
+     */
+    public boolean validate(String errorMessage) {
+        Component component = extended == null ? null : extended.get();
+        Object value = component instanceof HasValue ? ((HasValue<?, ?>) component).getValue() : null;
+        boolean valid = !(value instanceof String) || InputMaskValidator.isValid(spec, (String) value);
+        setErrorMessage(valid ? null : errorMessage);
+        setInvalid(!valid);
+        return valid;
+    }
+
+    /**
+     * Sets when the unmasked value (the value of this field) is synchronized from the browser.
+     * Defaults to {@link ValueChangeMode#ON_CHANGE}. With {@link ValueChangeMode#LAZY} and
+     * {@link ValueChangeMode#TIMEOUT} the browser debounces or throttles the updates using
+     * {@link #setValueChangeTimeout(int)}, so only the latest value is sent.
+     */
+    @Override
+    public void setValueChangeMode(ValueChangeMode valueChangeMode) {
+        this.valueChangeMode = valueChangeMode;
+        setSynchronizedEvent(eventForMode(valueChangeMode));
+        applyChangeTimeout();
+    }
+
+    @Override
+    public ValueChangeMode getValueChangeMode() {
+        return valueChangeMode;
+    }
+
+    @Override
+    public void setValueChangeTimeout(int valueChangeTimeout) {
+        this.valueChangeTimeout = valueChangeTimeout;
+        applyChangeTimeout();
+    }
+
+    @Override
+    public int getValueChangeTimeout() {
+        return valueChangeTimeout;
+    }
+
+    private static String eventForMode(ValueChangeMode valueChangeMode) {
+        if (valueChangeMode == null) {
+            return null;
+        }
+        switch (valueChangeMode) {
+        case ON_CHANGE:
+            return CHANGE_EVENT;
+        case ON_BLUR:
+            return BLUR_EVENT;
+        default:
+            return INPUT_EVENT;
+        }
+    }
+
+    private void applyChangeTimeout() {
+        if (valueChangeMode != null) {
+            ValueChangeMode.applyChangeTimeout(valueChangeMode, valueChangeTimeout,
+                    getSynchronizationRegistration());
+        }
+    }
+
+    /**
+     * Sets whether the mask is initialized in the browser only when the field first gets focus or
+     * input, instead of as soon as it is attached. Until then the field only shows the value
+     * formatted without an IMask instance, which speeds up rendering views with many masked fields.
+     * Defaults to {@code false}. Must be set before the mask is attached.
+     */
+    public void setInitOnFocus(boolean initOnFocus) {
+        getElement().setProperty("initOnFocus", initOnFocus);
+    }
+
+    public boolean isInitOnFocus() {
+        return getElement().getProperty("initOnFocus", false);
+    }
+
+    /**
+     * Keeps the mask bound to its field while the field is detached on the server, so it needs no
+     * new {@code extend} call when the field is attached again, and keeps the IMask instance in the
+     * browser for the given number of milliseconds after its element is disconnected. The browser
+     * instance is only reused when the same element reconnects, i.e. when the field is moved in the
+     * browser DOM without the server detaching it (e.g. into an overlay); a field detached and
+     * re-attached on the server gets a new element and a new instance. {@code 0} (the default)
+     * disables it.
+     */
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        if (keepAliveTimeout < 0) {
+            throw new IllegalArgumentException("Keep alive timeout must not be negative: " + keepAliveTimeout);
+        }
+        getElement().setProperty("keepAlive", keepAliveTimeout);
+    }
+
+    public int getKeepAliveTimeout() {
+        return getElement().getProperty("keepAlive", 0);
+    }
+
+    /**
+     * Returns the server-side representation of this mask.
+     */
+    public MaskEngine getMaskEngine() {
+        return spec.getEngine();
+    }
+
+    /**
+     * Returns the mask specification, shared by all InputMasks with equal options.
+     */
+    public InputMaskSpec getSpec() {
+        return spec;
+    }
 	
 	@Override
     public void setErrorMessage(String errorMessage) {
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.function.SerializableConsumer;
+import elemental.json.JsonArray;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fetches the masked and unmasked values of many {@link InputMask}s with a single JavaScript call,
+ * instead of one {@link InputMask#getUnmaskedValue(SerializableConsumer)} round trip per field.
+ * <p>
+ * Only masks attached to a UI are included in the result.
+ */
+public final class InputMaskBatch implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private InputMaskBatch() {
+	}
+
+	/**
+	 * Fetches the values of all InputMasks extending components inside the given container.
+	 */
+	public static void fetchValues(Component container,
+			SerializableConsumer<Map<InputMask, MaskedValue>> consumer) {
+		fetchValues(descendants(container).filter(InputMask.class::isInstance).map(InputMask.class::cast)
+				.collect(Collectors.toList()), consumer);
+	}
+
+	/**
+	 * Fetches the values of the given InputMasks. The consumer receives a map in iteration order of
+	 * {@code masks}.
+	 */
+	public static void fetchValues(Collection<InputMask> masks,
+			SerializableConsumer<Map<InputMask, MaskedValue>> consumer) {
+		List<InputMask> attached = masks.stream().filter(mask -> mask.getUI().isPresent())
+				.collect(Collectors.toList());
+		if (attached.isEmpty()) {
+			consumer.accept(Collections.emptyMap());
+			return;
+		}
+		UI ui = attached.get(0).getUI().get();
+		StringBuilder expression = new StringBuilder("return [");
+		Serializable[] elements = new Serializable[attached.size()];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = attached.get(i).getElement();
+			expression.append(i == 0 ? "$" : ", $").append(i);
+		}
+		expression.append("].map(e => [e.getMaskedValue(), e.getUnmaskedValue(), e.isComplete()])");
+		InputMaskMetrics metrics = InputMask.getMetrics();
+		if (metrics != InputMaskMetrics.NOOP) {
+			attached.stream().map(InputMask::getSpec).distinct()
+					.forEach(spec -> metrics.roundTrip(spec, InputMaskMetrics.RoundTrip.FETCH_VALUES));
+		}
+		ui.getPage().executeJs(expression.toString(), elements).then(JsonArray.class, result -> {
+			Map<InputMask, MaskedValue> values = new LinkedHashMap<>();
+			for (int i = 0; i < result.length() && i < attached.size(); i++) {
+				JsonArray value = result.getArray(i);
+				values.put(attached.get(i),
+						new MaskedValue(value.getString(0), value.getString(1), value.getBoolean(2)));
+			}
+			consumer.accept(values);
+		});
+	}
+
+	private static Stream<Component> descendants(Component component) {
+		return Stream.concat(Stream.of(component), component.getChildren().flatMap(InputMaskBatch::descendants));
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validates large numbers of values (e.g. nightly imports) against a mask definition outside of
+ * any UI or session. The values are split into batches of {@link #withBatchSize(int) batch size}
+ * records, and at most {@link #withParallelism(int) parallelism} batches are processed at a time
+ * on the given executor, e.g. a fork/join pool or, on Java 21+, a virtual thread per task
+ * executor. Instances are immutable and thread-safe.
+ *
+ * <pre>
+ * InputMaskBulkValidator validator = InputMaskBulkValidator.of(phoneFieldMask.getSpec());
+ * InputMaskBulkValidator.Results results = validator.validateAll(phoneNumbers, executor).join();
+ * for (int i = 0; i &lt; results.size(); i++) {
+ *     if (!results.isValid(i)) { ... }
+ * }
+ * </pre>
+ */
+public final class InputMaskBulkValidator implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int DEFAULT_BATCH_SIZE = 1024;
+
+	private final InputMaskSpec spec;
+	private final int batchSize;
+	private final int parallelism;
+
+	private InputMaskBulkValidator(InputMaskSpec spec, int batchSize, int parallelism) {
+		if (!spec.getEngine().isSupported()) {
+			throw new UnsupportedOperationException("Mask " + spec + " cannot be validated on the server");
+		}
+		this.spec = spec;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+	}
+
+	public static InputMaskBulkValidator of(InputMaskSpec spec) {
+		return new InputMaskBulkValidator(Objects.requireNonNull(spec), DEFAULT_BATCH_SIZE,
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	public static InputMaskBulkValidator of(String mask, InputMaskOption... options) {
+		return of(InputMaskSpec.of(mask, options));
+	}
+
+	/**
+	 * Returns a validator processing the given number of records per task.
+	 */
+	public InputMaskBulkValidator withBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		return new InputMaskBulkValidator(spec, batchSize, parallelism);
+	}
+
+	/**
+	 * Returns a validator running at most the given number of batches at a time. With a virtual
+	 * thread executor this can be higher than the number of cores.
+	 */
+	public InputMaskBulkValidator withParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		return new InputMaskBulkValidator(spec, batchSize, parallelism);
+	}
+
+	public InputMaskSpec getSpec() {
+		return spec;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Validates all values on the common fork/join pool.
+	 */
+	public CompletableFuture<Results> validateAll(List<? extends CharSequence> values) {
+		return validateAll(values, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Validates all values on the given executor. The list must not be modified until the returned
+	 * future completes; it should support fast random access.
+	 */
+	public CompletableFuture<Results> validateAll(List<? extends CharSequence> values, Executor executor) {
+		byte[] flags = new byte[values.size()];
+		int batches = (flags.length + batchSize - 1) / batchSize;
+		AtomicInteger nextBatch = new AtomicInteger();
+		// a fixed number of workers pull batches, so the executor never holds more than
+		// `parallelism` tasks of this call no matter how many values there are
+		CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, batches)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = CompletableFuture.runAsync(() -> {
+				StringBuilder buffer = new StringBuilder(spec.getEngine().sizeHint());
+				for (int batch = nextBatch.getAndIncrement(); batch < batches; batch = nextBatch.getAndIncrement()) {
+					int end = Math.min(flags.length, (batch + 1) * batchSize);
+					for (int index = batch * batchSize; index < end; index++) {
+						flags[index] = resolve(values.get(index), buffer);
+					}
+				}
+			}, executor);
+		}
+		return CompletableFuture.allOf(workers).thenApply(done -> new Results(flags));
+	}
+
+	/**
+	 * Validates a single value on the calling thread.
+	 */
+	public boolean isValid(CharSequence value) {
+		return Results.isValidFlags(resolve(value, new StringBuilder(spec.getEngine().sizeHint())));
+	}
+
+	private byte resolve(CharSequence value, StringBuilder buffer) {
+		if (value == null || value.length() == 0) {
+			return Results.EMPTY;
+		}
+		buffer.setLength(0);
+		return (byte) spec.getEngine().resolve(value, buffer, null);
+	}
+
+	/**
+	 * Per-record results of {@link InputMaskBulkValidator#validateAll(List, Executor)}, in the
+	 * order of the validated values. Results are stored as one byte per record.
+	 */
+	public static final class Results implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		static final byte EMPTY = 4;
+
+		private final byte[] flags;
+
+		Results(byte[] flags) {
+			this.flags = flags;
+		}
+
+		public int size() {
+			return flags.length;
+		}
+
+		/**
+		 * Returns whether the mask accepts every char of the value at the given index.
+		 */
+		public boolean isAccepted(int index) {
+			return (flags[index] & MaskEngine.REJECTED) == 0;
+		}
+
+		/**
+		 * Returns whether the value at the given index fills all required parts of the mask.
+		 */
+		public boolean isComplete(int index) {
+			return (flags[index] & MaskEngine.COMPLETE) != 0;
+		}
+
+		/**
+		 * Returns whether the value at the given index is empty ({@code null} or {@code ""}).
+		 */
+		public boolean isEmpty(int index) {
+			return flags[index] == EMPTY;
+		}
+
+		/**
+		 * Returns whether the value at the given index passes an {@link InputMaskValidator}: it is
+		 * empty, or complete and accepted.
+		 */
+		public boolean isValid(int index) {
+			return isValidFlags(flags[index]);
+		}
+
+		/**
+		 * Returns the number of values that are not {@link #isValid(int) valid}.
+		 */
+		public int getInvalidCount() {
+			int count = 0;
+			for (byte flag : flags) {
+				if (!isValidFlags(flag)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		static boolean isValidFlags(int flags) {
+			return flags == EMPTY || (flags & (MaskEngine.COMPLETE | MaskEngine.REJECTED)) == MaskEngine.COMPLETE;
+		}
+	}
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Streams a CSV (or line-delimited) file through NIO channels, checking selected columns against
+ * mask definitions and writing a copy in which the valid values of those columns are replaced by
+ * their unmasked form. Invalid values are written unchanged and passed to an
+ * {@link ErrorHandler}.
+ * <p>
+ * Memory use does not depend on the size of the file: bytes are decoded through fixed-size buffers
+ * and each field is parsed into one reused buffer, so no string is created per row or field.
+ * Fields longer than {@link #withMaxFieldLength(int)} chars, and a quoted field not closed at the
+ * end of the input, fail the run. Line terminators ({@code \r\n}, {@code \n} or a lone
+ * {@code \r}) are copied unchanged. Instances are immutable and thread-safe, each call uses its own
+ * buffers.
+ *
+ * <pre>
+ * InputMaskCsvValidator validator = InputMaskCsvValidator.create()
+ *         .withHeader(true)
+ *         .column(2, phoneFieldMask.getSpec());
+ * InputMaskCsvValidator.Report report = validator.validate(upload, normalized,
+ *         (record, column, value, violation) -&gt; errors.add(record + ": " + value));
+ * </pre>
+ */
+public final class InputMaskCsvValidator implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	static final int DEFAULT_MAX_FIELD_LENGTH = 64 * 1024;
+
+	/**
+	 * Reason why a value is invalid.
+	 */
+	public enum Violation {
+		/** The value does not fill all required parts of the mask. */
+		INCOMPLETE,
+		/** The mask does not accept some chars of the value. */
+		REJECTED
+	}
+
+	/**
+	 * Receives the invalid values of a run.
+	 */
+	@FunctionalInterface
+	public interface ErrorHandler {
+
+		/**
+		 * Called for each invalid value. {@code value} is only valid during the call and must be
+		 * copied if it is kept.
+		 *
+		 * @param record
+		 *            1-based number of the record, counting the header
+		 * @param column
+		 *            0-based column index
+		 */
+		void invalidValue(long record, int column, CharSequence value, Violation violation) throws IOException;
+	}
+
+	private final InputMaskSpec[] columns;
+	private final char delimiter;
+	private final boolean header;
+	private final Charset charset;
+	private final int bufferSize;
+	private final int maxFieldLength;
+
+	private InputMaskCsvValidator(InputMaskSpec[] columns, char delimiter, boolean header, Charset charset,
+			int bufferSize, int maxFieldLength) {
+		this.columns = columns;
+		this.delimiter = delimiter;
+		this.header = header;
+		this.charset = charset;
+		this.bufferSize = bufferSize;
+		this.maxFieldLength = maxFieldLength;
+	}
+
+	/**
+	 * Returns a validator for comma separated UTF-8 input without header and without checked
+	 * columns.
+	 */
+	public static InputMaskCsvValidator create() {
+		return new InputMaskCsvValidator(new InputMaskSpec[0], ',', false, StandardCharsets.UTF_8,
+				DEFAULT_BUFFER_SIZE, DEFAULT_MAX_FIELD_LENGTH);
+	}
+
+	/**
+	 * Returns a validator that also checks the column at the given (0-based) index against the given
+	 * mask.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             if the mask cannot be evaluated on the server
+	 */
+	public InputMaskCsvValidator column(int index, InputMaskSpec spec) {
+		if (index < 0) {
+			throw new IllegalArgumentException("Column index must not be negative: " + index);
+		}
+		if (!spec.getEngine().isSupported()) {
+			throw new UnsupportedOperationException("Mask " + spec + " cannot be validated on the server");
+		}
+		InputMaskSpec[] newColumns = Arrays.copyOf(columns, Math.max(columns.length, index + 1));
+		newColumns[index] = spec;
+		return new InputMaskCsvValidator(newColumns, delimiter, header, charset, bufferSize, maxFieldLength);
+	}
+
+	/**
+	 * Returns a validator splitting fields at the given char. Input with one value per line is read
+	 * with any delimiter that does not occur in the values.
+	 */
+	public InputMaskCsvValidator withDelimiter(char delimiter) {
+		if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+			throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+		}
+		return new InputMaskCsvValidator(columns, delimiter, header, charset, bufferSize, maxFieldLength);
+	}
+
+	/**
+	 * Returns a validator that copies the first record unchecked.
+	 */
+	public InputMaskCsvValidator withHeader(boolean header) {
+		return new InputMaskCsvValidator(columns, delimiter, header, charset, bufferSize, maxFieldLength);
+	}
+
+	/**
+	 * Returns a validator reading and writing the given charset. Malformed input is replaced by
+	 * U+FFFD, which no mask accepts.
+	 */
+	public InputMaskCsvValidator withCharset(Charset charset) {
+		return new InputMaskCsvValidator(columns, delimiter, header, Objects.requireNonNull(charset), bufferSize,
+				maxFieldLength);
+	}
+
+	/**
+	 * Returns a validator using byte and char buffers of the given capacity.
+	 */
+	public InputMaskCsvValidator withBufferSize(int bufferSize) {
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("Buffer size must be at least 16: " + bufferSize);
+		}
+		return new InputMaskCsvValidator(columns, delimiter, header, charset, bufferSize, maxFieldLength);
+	}
+
+	/**
+	 * Returns a validator failing on fields longer than the given number of chars, which bounds the
+	 * memory of a run.
+	 */
+	public InputMaskCsvValidator withMaxFieldLength(int maxFieldLength) {
+		if (maxFieldLength < 1) {
+			throw new IllegalArgumentException("Maximum field length must be positive: " + maxFieldLength);
+		}
+		return new InputMaskCsvValidator(columns, delimiter, header, charset, bufferSize, maxFieldLength);
+	}
+
+	/**
+	 * Validates the file at {@code input}, writing the normalized copy to {@code output} (if not
+	 * {@code null}).
+	 */
+	public Report validate(Path input, Path output, ErrorHandler errors) throws IOException {
+		try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+			if (output == null) {
+				return validate(in, null, errors);
+			}
+			try (FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				return validate(in, out, errors);
+			}
+		}
+	}
+
+	/**
+	 * Validates the input read from {@code input}, writing the normalized copy to {@code output} (if
+	 * not {@code null}). The channels are not closed.
+	 */
+	public Report validate(ReadableByteChannel input, WritableByteChannel output, ErrorHandler errors)
+			throws IOException {
+		return new Run(output, errors).read(input);
+	}
+
+	/**
+	 * Counts of a validation run.
+	 */
+	public static final class Report implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long records;
+		private final long checkedValues;
+		private final long invalidValues;
+
+		Report(long records, long checkedValues, long invalidValues) {
+			this.records = records;
+			this.checkedValues = checkedValues;
+			this.invalidValues = invalidValues;
+		}
+
+		/**
+		 * Returns the number of records read, including the header.
+		 */
+		public long getRecords() {
+			return records;
+		}
+
+		/**
+		 * Returns the number of non-empty values checked against a mask.
+		 */
+		public long getCheckedValues() {
+			return checkedValues;
+		}
+
+		public long getInvalidValues() {
+			return invalidValues;
+		}
+
+		@Override
+		public String toString() {
+			return "Report[records=" + records + ", checkedValues=" + checkedValues + ", invalidValues="
+					+ invalidValues + "]";
+		}
+	}
+
+	/**
+	 * State of one call: buffers, parser state and counters.
+	 */
+	private final class Run {
+
+		private final WritableByteChannel output;
+		private final ErrorHandler errors;
+		private final StringBuilder field = new StringBuilder();
+		private final StringBuilder masked = new StringBuilder();
+		private final StringBuilder unmasked = new StringBuilder();
+		private final CharBuffer outChars;
+		private final ByteBuffer outBytes;
+		private final CharsetEncoder encoder;
+
+		private boolean inQuotes;
+		private boolean quoteInQuotes;
+		private boolean afterCarriageReturn;
+		private boolean recordStarted;
+		private int column;
+		private long records;
+		private long checkedValues;
+		private long invalidValues;
+
+		Run(WritableByteChannel output, ErrorHandler errors) {
+			this.output = output;
+			this.errors = errors;
+			if (output != null) {
+				outChars = CharBuffer.allocate(bufferSize);
+				outBytes = ByteBuffer.allocate(bufferSize);
+				encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			} else {
+				outChars = null;
+				outBytes = null;
+				encoder = null;
+			}
+		}
+
+		Report read(ReadableByteChannel input) throws IOException {
+			ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+			CharBuffer chars = CharBuffer.allocate(bufferSize);
+			CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			boolean endOfInput = false;
+			while (!endOfInput) {
+				endOfInput = input.read(bytes) < 0;
+				bytes.flip();
+				CoderResult result;
+				do {
+					result = decoder.decode(bytes, chars, endOfInput);
+					parse(chars);
+				} while (result.isOverflow());
+				bytes.compact();
+			}
+			while (decoder.flush(chars).isOverflow()) {
+				parse(chars);
+			}
+			parse(chars);
+			if (inQuotes && !quoteInQuotes) {
+				throw new IOException("Quoted field " + column + " of record " + (records + 1) + " is not closed");
+			}
+			if (recordStarted) {
+				endRecord((char) 0);
+			}
+			if (output != null) {
+				encode(true);
+			}
+			return new Report(records, checkedValues, invalidValues);
+		}
+
+		private void parse(CharBuffer chars) throws IOException {
+			chars.flip();
+			while (chars.hasRemaining()) {
+				char c = chars.get();
+				if (afterCarriageReturn) {
+					afterCarriageReturn = false;
+					if (c == '\n') {
+						// second char of a \r\n terminator
+						if (output != null) {
+							write(c);
+						}
+						continue;
+					}
+				}
+				if (inQuotes) {
+					if (quoteInQuotes) {
+						quoteInQuotes = false;
+						if (c == '"') {
+							append(c);
+							continue;
+						}
+						inQuotes = false;
+					} else {
+						if (c == '"') {
+							quoteInQuotes = true;
+						} else {
+							append(c);
+						}
+						continue;
+					}
+				}
+				recordStarted = true;
+				if (c == delimiter) {
+					endField();
+				} else if (c == '\n' || c == '\r') {
+					endRecord(c);
+				} else if (c == '"' && field.length() == 0) {
+					inQuotes = true;
+				} else {
+					append(c);
+				}
+			}
+			chars.clear();
+		}
+
+		private void append(char c) throws IOException {
+			if (field.length() >= maxFieldLength) {
+				throw new IOException("Field " + column + " of record " + (records + 1) + " is longer than "
+						+ maxFieldLength + " chars");
+			}
+			field.append(c);
+		}
+
+		/**
+		 * Ends the current record, which was terminated by {@code \r}, {@code \n} or (at the end of
+		 * the input) nothing. The terminator is copied; a {@code \n} following {@code \r} is copied
+		 * when it is read.
+		 */
+		private void endRecord(char terminator) throws IOException {
+			endField();
+			records++;
+			column = 0;
+			recordStarted = false;
+			afterCarriageReturn = terminator == '\r';
+			if (output != null && terminator != 0) {
+				write(terminator);
+			}
+		}
+
+		private void endField() throws IOException {
+			CharSequence value = field;
+			InputMaskSpec spec = column < columns.length && (records > 0 || !header) ? columns[column] : null;
+			if (spec != null && field.length() > 0) {
+				checkedValues++;
+				masked.setLength(0);
+				unmasked.setLength(0);
+				int flags = spec.getEngine().resolve(field, masked, unmasked);
+				if ((flags & MaskEngine.REJECTED) != 0) {
+					invalid(Violation.REJECTED);
+				} else if ((flags & MaskEngine.COMPLETE) == 0) {
+					invalid(Violation.INCOMPLETE);
+				} else {
+					value = unmasked;
+				}
+			}
+			if (output != null) {
+				if (column > 0) {
+					write(delimiter);
+				}
+				writeField(value);
+			}
+			field.setLength(0);
+			column++;
+		}
+
+		private void invalid(Violation violation) throws IOException {
+			invalidValues++;
+			if (errors != null) {
+				errors.invalidValue(records + 1, column, field, violation);
+			}
+		}
+
+		private void writeField(CharSequence value) throws IOException {
+			boolean quote = false;
+			for (int i = 0; i < value.length() && !quote; i++) {
+				char c = value.charAt(i);
+				quote = c == delimiter || c == '"' || c == '\r' || c == '\n';
+			}
+			if (quote) {
+				write('"');
+			}
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '"') {
+					write('"');
+				}
+				write(c);
+			}
+			if (quote) {
+				write('"');
+			}
+		}
+
+		private void write(char c) throws IOException {
+			if (!outChars.hasRemaining()) {
+				encode(false);
+			}
+			outChars.put(c);
+		}
+
+		private void encode(boolean endOfInput) throws IOException {
+			outChars.flip();
+			CoderResult result;
+			do {
+				result = encoder.encode(outChars, outBytes, endOfInput);
+				writeBytes();
+			} while (result.isOverflow());
+			outChars.compact();
+			if (endOfInput) {
+				while (encoder.flush(outBytes).isOverflow()) {
+					writeBytes();
+				}
+				writeBytes();
+			}
+		}
+
+		private void writeBytes() throws IOException {
+			outBytes.flip();
+			while (outBytes.hasRemaining()) {
+				output.write(outBytes);
+			}
+			outBytes.clear();
+		}
+	}
+}
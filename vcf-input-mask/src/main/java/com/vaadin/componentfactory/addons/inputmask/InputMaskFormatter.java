@@ -0,0 +1,179 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Formats values in bulk (e.g. for exports and reports) with the same mask definition an
+ * {@link InputMask} uses in the browser. Formatting reuses per-thread buffers instead of allocating
+ * intermediate objects for every row. Instances are immutable and thread-safe.
+ *
+ * <pre>
+ * InputMaskFormatter formatter = InputMaskFormatter.of(phoneFieldMask);
+ * Stream&lt;String&gt; formatted = formatter.format(phoneNumbers.stream());
+ * </pre>
+ */
+public final class InputMaskFormatter implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Buffers that grew beyond this many chars are dropped instead of kept for the thread. */
+	static final int MAX_RETAINED_CAPACITY = 1024;
+
+	private static final int OUTPUT = 0;
+
+	private static final int INPUT = 1;
+
+	/**
+	 * Output and input buffer of the thread, {@code null} while a call has taken them. Only JDK
+	 * types are kept, so pooled threads do not pin the classloader of an undeployed application.
+	 */
+	private static final ThreadLocal<StringBuilder[]> BUFFERS = ThreadLocal
+			.withInitial(() -> new StringBuilder[] { new StringBuilder(), new StringBuilder() });
+
+	private final MaskEngine mask;
+
+	private InputMaskFormatter(MaskEngine mask) {
+		if (!mask.isSupported()) {
+			throw new UnsupportedOperationException("Mask " + mask + " cannot be formatted on the server");
+		}
+		this.mask = mask;
+	}
+
+	public static InputMaskFormatter of(InputMask inputMask) {
+		return new InputMaskFormatter(inputMask.getMaskEngine());
+	}
+
+	public static InputMaskFormatter of(String mask, InputMaskOption... options) {
+		return of(InputMaskSpec.of(mask, options));
+	}
+
+	public static InputMaskFormatter of(InputMaskSpec spec) {
+		return new InputMaskFormatter(spec.getEngine());
+	}
+
+	/**
+	 * Formats a single value.
+	 */
+	public String format(CharSequence value) {
+		StringBuilder[] buffers = acquire();
+		try {
+			return format(value, buffers[OUTPUT]).toString();
+		} finally {
+			release(buffers);
+		}
+	}
+
+	/**
+	 * Lazily formats a stream of values. Parallel streams are formatted in parallel.
+	 */
+	public Stream<String> format(Stream<? extends CharSequence> values) {
+		return values.map(this::format);
+	}
+
+	/**
+	 * Formats all values in order, passing each result to {@code sink}. The same buffer is reused
+	 * for every value, so the sink must copy the char sequence if it keeps it beyond the call.
+	 */
+	public void formatTo(Iterable<? extends CharSequence> values, Consumer<? super CharSequence> sink) {
+		StringBuilder[] buffers = acquire();
+		try {
+			for (CharSequence value : values) {
+				sink.accept(format(value, buffers[OUTPUT]));
+			}
+		} finally {
+			release(buffers);
+		}
+	}
+
+	/**
+	 * Formats numeric values (e.g. phone numbers stored as {@code long}) without converting them to
+	 * strings first. The same buffer is reused for every value, see
+	 * {@link #formatTo(Iterable, Consumer)}.
+	 */
+	public void formatTo(long[] values, Consumer<? super CharSequence> sink) {
+		StringBuilder[] buffers = acquire();
+		try {
+			for (long value : values) {
+				buffers[INPUT].setLength(0);
+				buffers[INPUT].append(value);
+				sink.accept(format(buffers[INPUT], buffers[OUTPUT]));
+			}
+		} finally {
+			release(buffers);
+		}
+	}
+
+	/**
+	 * Formats all values into a new list. When {@code parallel} is {@code true} the work is split
+	 * across the common fork/join pool.
+	 */
+	public List<String> formatAll(List<? extends CharSequence> values, boolean parallel) {
+		String[] result = new String[values.size()];
+		IntStream indexes = IntStream.range(0, result.length);
+		if (parallel) {
+			indexes = indexes.parallel();
+		}
+		indexes.forEach(i -> result[i] = format(values.get(i)));
+		return Arrays.asList(result);
+	}
+
+	private StringBuilder format(CharSequence value, StringBuilder buffer) {
+		buffer.setLength(0);
+		mask.resolve(value, buffer, null);
+		return buffer;
+	}
+
+	/**
+	 * Takes the buffers of the thread. A nested call on the same thread (e.g. a sink that formats
+	 * again) gets fresh buffers so it cannot overwrite the ones the outer call is still handing out.
+	 */
+	private static StringBuilder[] acquire() {
+		StringBuilder[] held = BUFFERS.get();
+		if (held[OUTPUT] == null) {
+			return new StringBuilder[] { new StringBuilder(), new StringBuilder() };
+		}
+		StringBuilder[] buffers = { held[OUTPUT], held[INPUT] };
+		held[OUTPUT] = null;
+		held[INPUT] = null;
+		return buffers;
+	}
+
+	/**
+	 * Gives buffers back to the thread, dropping those that grew beyond
+	 * {@link #MAX_RETAINED_CAPACITY}.
+	 */
+	private static void release(StringBuilder[] buffers) {
+		StringBuilder[] held = BUFFERS.get();
+		if (held[OUTPUT] == null) {
+			held[OUTPUT] = trimmed(buffers[OUTPUT]);
+			held[INPUT] = trimmed(buffers[INPUT]);
+		}
+	}
+
+	private static StringBuilder trimmed(StringBuilder buffer) {
+		return buffer.capacity() > MAX_RETAINED_CAPACITY ? new StringBuilder() : buffer;
+	}
+
+	/** Capacity of the calling thread's retained output buffer, for tests. */
+	static int retainedCapacity() {
+		return BUFFERS.get()[OUTPUT].capacity();
+	}
+}
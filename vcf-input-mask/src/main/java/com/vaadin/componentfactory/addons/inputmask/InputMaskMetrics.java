@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.io.Serializable;
+
+/**
+ * Listener for the costs of InputMask, to be fed into an application's metrics system. All events
+ * are tagged with the mask definition they belong to. Set it with
+ * {@link InputMask#setMetrics(InputMaskMetrics)}; by default {@link #NOOP} is used, which adds no
+ * work or allocation to the instrumented code paths.
+ * <p>
+ * Implementations are called from UI threads of all sessions and must be thread-safe.
+ */
+public interface InputMaskMetrics extends Serializable {
+
+	/**
+	 * Listener that ignores all events.
+	 */
+	InputMaskMetrics NOOP = new InputMaskMetrics() {
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * Kinds of JavaScript calls made by the server.
+	 */
+	enum RoundTrip {
+		/** {@link InputMask#getUnmaskedValue(com.vaadin.flow.function.SerializableConsumer)} */
+		GET_UNMASKED_VALUE,
+		/** {@link InputMask#getMaskedValue(com.vaadin.flow.function.SerializableConsumer)} */
+		GET_MASKED_VALUE,
+		/** Server-side value change of the extended component pushed to the mask. */
+		VALUE_PUSH,
+		/**
+		 * {@link InputMaskBatch} call, reported once for every mask definition the batch fetches
+		 * values of.
+		 */
+		FETCH_VALUES
+	}
+
+	/**
+	 * Called when a JavaScript call is sent to the browser.
+	 */
+	default void roundTrip(InputMaskSpec mask, RoundTrip type) {
+	}
+
+	/**
+	 * Called when a mask definition is sent to a UI. The definition travels with the next response
+	 * and costs no round trip of its own.
+	 */
+	default void definitionSent(InputMaskSpec mask) {
+	}
+
+	/**
+	 * Called when the options of a mask definition are serialized to JSON.
+	 */
+	default void optionsSerialized(InputMaskSpec mask, long nanos) {
+	}
+
+	/**
+	 * Called when an InputMask is attached, which (re-)initializes the mask in the browser.
+	 */
+	default void attached(InputMaskSpec mask) {
+	}
+
+	/**
+	 * Called with the IMask initializations reported by the browser since the last report.
+	 */
+	default void clientInitialized(InputMaskSpec mask, int count, double millis) {
+	}
+
+	/**
+	 * Called with the keystroke processing times reported by the browser since the last report.
+	 */
+	default void clientKeystrokes(InputMaskSpec mask, int count, double millis) {
+	}
+}
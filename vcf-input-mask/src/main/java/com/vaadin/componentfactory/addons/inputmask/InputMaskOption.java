@@ -13,26 +13,42 @@
  */
 package com.vaadin.componentfactory.addons.inputmask;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
 
 public class InputMaskOption implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	/** Name of the client function converting the input to uppercase. */
+	public static final String UPPERCASE = "uppercase";
+
+	/** Name of the client function converting the input to lowercase. */
+	public static final String LOWERCASE = "lowercase";
+
+	/** Name of the client function removing all non-digit chars from the input. */
+	public static final String DIGITS_ONLY = "digitsOnly";
+
 	private final String key;
 	private final Object value;
 	private final boolean eval;
+	private final boolean function;
 
 	private InputMaskOption(String key, Object value) {
-		this.key = key;
-		this.value = value;
-		this.eval = false;
+		this(key, value, false, false);
 	}
 
 	private InputMaskOption(String key, Object value, boolean eval) {
+		this(key, value, eval, false);
+	}
+
+	private InputMaskOption(String key, Object value, boolean eval, boolean function) {
 		this.key = key;
 		this.value = value;
 		this.eval = eval;
+		this.function = function;
 	}
 
 	public static InputMaskOption option(String key, Object value) {
@@ -47,6 +63,86 @@ public class InputMaskOption implements Serializable {
 		return new InputMaskOption(key, value);
 	}
 
+	/**
+	 * Option whose value is a function registered in the browser under the given name, e.g.
+	 * {@link #UPPERCASE}. Custom functions are registered once per page from the application's
+	 * own JavaScript with {@code customElements.get('input-mask').registerFunction(name, fn)}.
+	 * Unlike {@link #option(String, Object, boolean) evaluated options}, no code is compiled when
+	 * a field is initialized.
+	 */
+	public static InputMaskOption function(String key, String name) {
+		return new InputMaskOption(key, name, false, true);
+	}
+
+	/**
+	 * Mask option for imask's dynamic masks: the value is resolved with the first candidate that
+	 * accepts it. Candidates are created with {@link #candidate(String, InputMaskOption...)}, e.g.
+	 * {@code InputMaskSpec.of(Arrays.asList(dynamic(candidate("(000) 000-0000"), candidate("aa000000000", toUppercase()))))}
+	 * or shorter {@link InputMaskSpec#dynamic(InputMaskOption...)}.
+	 */
+	public static InputMaskOption dynamic(InputMaskOption... candidates) {
+		return new InputMaskOption("mask", candidates);
+	}
+
+	/**
+	 * Candidate of a {@link #dynamic(InputMaskOption...) dynamic mask} with its own options.
+	 */
+	public static InputMaskOption candidate(String mask, InputMaskOption... options) {
+		InputMaskOption[] value = new InputMaskOption[options.length + 1];
+		value[0] = option("mask", mask);
+		System.arraycopy(options, 0, value, 1, options.length);
+		return new InputMaskOption("candidate", value);
+	}
+
+	/**
+	 * Mask option for imask's number mask, see {@link InputMaskSpec#number(InputMaskOption...)}.
+	 */
+	public static InputMaskOption number() {
+		return function("mask", NumberMask.NUMBER);
+	}
+
+	/**
+	 * Number of fraction digits of a {@link #number()} mask, {@code 0} for integers. Defaults to 2.
+	 */
+	public static InputMaskOption scale(int value) {
+		return option("scale", value);
+	}
+
+	/**
+	 * Fraction separator of a {@link #number()} mask. Defaults to {@code ','}.
+	 */
+	public static InputMaskOption radix(char value) {
+		return option("radix", String.valueOf(value));
+	}
+
+	/**
+	 * Thousands separator of a {@link #number()} mask. By default digits are not grouped.
+	 */
+	public static InputMaskOption thousandsSeparator(char value) {
+		return option("thousandsSeparator", String.valueOf(value));
+	}
+
+	/**
+	 * Minimum value of a {@link #number()} mask.
+	 */
+	public static InputMaskOption min(Number value) {
+		return option("min", value);
+	}
+
+	/**
+	 * Maximum value of a {@link #number()} mask.
+	 */
+	public static InputMaskOption max(Number value) {
+		return option("max", value);
+	}
+
+	/**
+	 * Whether a {@link #number()} mask pads the fraction with zeros up to the scale.
+	 */
+	public static InputMaskOption padFractionalZeros(boolean value) {
+		return option("padFractionalZeros", value);
+	}
+
 	public static InputMaskOption blocks(InputMaskOption... value) {
 		return new InputMaskOption("blocks", value);
 	}
@@ -64,7 +160,40 @@ public class InputMaskOption implements Serializable {
 	 * @return
 	 */
 	public static InputMaskOption toUppercase() {
-		return new InputMaskOption("prepare", "str => str.toUpperCase()", true);
+		return function("prepare", UPPERCASE);
+	}
+
+	/**
+	 * Option that converts the input to lowercase.
+	 * @return
+	 */
+	public static InputMaskOption toLowercase() {
+		return function("prepare", LOWERCASE);
+	}
+
+	/**
+	 * Option that drops all non-digit chars from the input.
+	 * @return
+	 */
+	public static InputMaskOption digitsOnly() {
+		return function("prepare", DIGITS_ONLY);
+	}
+
+	/**
+	 * Returns this option with nested option arrays copied, so a compiled spec does not change
+	 * when the caller later modifies an array it passed.
+	 */
+	InputMaskOption immutableCopy() {
+		if (!(value instanceof InputMaskOption[])) {
+			return this;
+		}
+		InputMaskOption[] values = ((InputMaskOption[]) value).clone();
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				values[i] = values[i].immutableCopy();
+			}
+		}
+		return new InputMaskOption(key, values, eval, function);
 	}
 
 	public String getKey() {
@@ -79,4 +208,30 @@ public class InputMaskOption implements Serializable {
 		return eval;
 	}
 
+	// only sent when set, so plain options do not grow the definitions sent to the browser
+	@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+	public boolean isFunction() {
+		return function;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof InputMaskOption)) {
+			return false;
+		}
+		InputMaskOption other = (InputMaskOption) obj;
+		return eval == other.eval && function == other.function && Objects.equals(key, other.key) && Objects.deepEquals(value, other.value);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Objects.hashCode(key);
+		result = 31 * result + (value instanceof Object[] ? Arrays.deepHashCode((Object[]) value) : Objects.hashCode(value));
+		result = 31 * result + Boolean.hashCode(eval);
+		return 31 * result + Boolean.hashCode(function);
+	}
+
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.shared.Registration;
+import java.io.Serializable;
+
+/**
+ * Delegates the masking of all InputMasks inside a container (e.g. a form layout or a
+ * {@code Grid} with editor fields) to a single set of focus listeners installed on the container.
+ * Masks inside the scope do not create an IMask instance when attached; it is created when their
+ * field gets focus and destroyed again on blur. Values set from the server are still formatted.
+ *
+ * <pre>
+ * InputMaskScope.install(grid);
+ * </pre>
+ */
+public final class InputMaskScope implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final String ATTRIBUTE = "input-mask-scope";
+
+	private static final String INSTALL = "customElements.whenDefined($0).then(() => customElements.get($0).installScope(this))";
+
+	private static final String UNINSTALL = "customElements.whenDefined($0).then(() => customElements.get($0).uninstallScope(this))";
+
+	private InputMaskScope() {
+	}
+
+	/**
+	 * Installs a mask scope on the given container. Only masks attached after the scope is
+	 * installed are affected.
+	 *
+	 * @return a registration that removes the scope again
+	 */
+	public static Registration install(Component container) {
+		Element element = container.getElement();
+		element.setAttribute(ATTRIBUTE, true);
+		if (container.getUI().isPresent()) {
+			element.executeJs(INSTALL, InputMask.TAG_NAME);
+		}
+		Registration attachRegistration = container.addAttachListener(
+				event -> element.executeJs(INSTALL, InputMask.TAG_NAME));
+		return () -> {
+			attachRegistration.remove();
+			element.removeAttribute(ATTRIBUTE);
+			if (container.getUI().isPresent()) {
+				element.executeJs(UNINSTALL, InputMask.TAG_NAME);
+			}
+		};
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.option;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable, parsed form of a mask definition (the mask string plus its options). Instances are
+ * interned through {@link InputMaskSpecCache}, so while a definition is in use all InputMasks using
+ * it, in all sessions, reference the same instance, and it is not parsed again. A definition that
+ * was evicted from the cache and is no longer used anywhere is parsed again on its next use.
+ *
+ * <pre>
+ * static final InputMaskSpec PHONE = InputMaskSpec.of("(000) 000-0000", lazy(false));
+ * ...
+ * new InputMask(PHONE).extend(phoneField);
+ * </pre>
+ * <p>
+ * Serialized specs (e.g. in replicated sessions) only carry their options, the engine is compiled
+ * again or taken from the cache when read. Specs {@link #register(String, InputMaskSpec) registered}
+ * under a name are written as that name only.
+ */
+public final class InputMaskSpec implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static final ConcurrentMap<String, InputMaskSpec> BY_NAME = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<InputMaskSpec, String> NAMES = new ConcurrentHashMap<>();
+
+	private final List<InputMaskOption> options;
+	private final MaskEngine engine;
+	private transient volatile String optionsJson;
+
+	InputMaskSpec(List<InputMaskOption> options) {
+		this.options = options;
+		this.engine = MaskEngine.compile(options);
+	}
+
+	/**
+	 * Returns the shared specification of the given mask and options.
+	 */
+	public static InputMaskSpec of(String mask, InputMaskOption... options) {
+		return of(mask, false, options);
+	}
+
+	/**
+	 * Returns the shared specification of the given mask and options, see
+	 * {@link InputMask#InputMask(String, boolean, InputMaskOption...)}.
+	 */
+	public static InputMaskSpec of(String mask, boolean evalMask, InputMaskOption... options) {
+		List<InputMaskOption> maskOptions = new ArrayList<>(options == null ? 1 : options.length + 1);
+		maskOptions.add(option("mask", mask, evalMask));
+		if (options != null) {
+			maskOptions.addAll(Arrays.asList(options));
+		}
+		return of(maskOptions);
+	}
+
+	/**
+	 * Returns the shared specification of a dynamic mask with the given candidates.
+	 *
+	 * @see InputMaskOption#dynamic(InputMaskOption...)
+	 */
+	public static InputMaskSpec dynamic(InputMaskOption... candidates) {
+		return of(Collections.singletonList(InputMaskOption.dynamic(candidates)));
+	}
+
+	/**
+	 * Returns the shared specification of a number mask with the given options, e.g.
+	 * {@code InputMaskSpec.number(scale(2), thousandsSeparator(' '))}.
+	 *
+	 * @see NumberMask
+	 */
+	public static InputMaskSpec number(InputMaskOption... options) {
+		List<InputMaskOption> maskOptions = new ArrayList<>(options.length + 1);
+		maskOptions.add(InputMaskOption.number());
+		maskOptions.addAll(Arrays.asList(options));
+		return of(maskOptions);
+	}
+
+	/**
+	 * Returns the shared specification of a date mask with the given pattern, e.g.
+	 * {@code InputMaskSpec.date("MM/dd/yyyy", overwrite(true))}.
+	 *
+	 * @throws IllegalArgumentException if the pattern is not supported, see {@link DateMask}
+	 */
+	public static InputMaskSpec date(String pattern, InputMaskOption... options) {
+		List<InputMaskOption> maskOptions = DateMask.options(pattern);
+		maskOptions.addAll(Arrays.asList(options));
+		return of(maskOptions);
+	}
+
+	/**
+	 * Returns the shared specification of the given options, starting with the {@code mask} option.
+	 */
+	public static InputMaskSpec of(List<InputMaskOption> options) {
+		return InputMaskSpecCache.getInstance().get(options);
+	}
+
+	/**
+	 * Returns the (unmodifiable) options of this specification, starting with the
+	 * {@code mask} option.
+	 */
+	public List<InputMaskOption> getOptions() {
+		return options;
+	}
+
+	/**
+	 * Returns the server-side engine resolving values with this mask.
+	 */
+	public MaskEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Returns the options serialized as JSON for the client. The string is computed on first use
+	 * and then shared by all InputMasks using this mask.
+	 */
+	public String getOptionsJson() throws JsonProcessingException {
+		String json = optionsJson;
+		if (json == null) {
+			InputMaskMetrics metrics = InputMask.getMetrics();
+			long start = metrics != InputMaskMetrics.NOOP ? System.nanoTime() : 0;
+			json = OBJECT_MAPPER.writeValueAsString(options);
+			optionsJson = json;
+			if (metrics != InputMaskMetrics.NOOP) {
+				metrics.optionsSerialized(this, System.nanoTime() - start);
+			}
+		}
+		return json;
+	}
+
+	/**
+	 * Registers the given spec under a name, so it is serialized as that name instead of its
+	 * options. The name must be registered with the same definition on every node that reads the
+	 * serialized form, before sessions are deserialized (e.g. in a {@code VaadinServiceInitListener}).
+	 *
+	 * <pre>
+	 * static final InputMaskSpec PHONE = InputMaskSpec.register("phone", InputMaskSpec.of("(000) 000-0000"));
+	 * </pre>
+	 *
+	 * @return the registered spec
+	 * @throws IllegalStateException
+	 *             if the name or the definition is already registered differently
+	 */
+	public static InputMaskSpec register(String name, InputMaskSpec spec) {
+		Objects.requireNonNull(name, "name");
+		String registeredName = NAMES.putIfAbsent(Objects.requireNonNull(spec, "spec"), name);
+		if (registeredName != null && !registeredName.equals(name)) {
+			throw new IllegalStateException(spec + " is already registered as '" + registeredName + "'");
+		}
+		InputMaskSpec registered = BY_NAME.putIfAbsent(name, spec);
+		if (registered != null && !registered.equals(spec)) {
+			NAMES.remove(spec, name);
+			throw new IllegalStateException("Mask name '" + name + "' is already registered for " + registered);
+		}
+		return registered != null ? registered : spec;
+	}
+
+	/**
+	 * Returns the spec registered under the given name, or {@code null}.
+	 */
+	public static InputMaskSpec named(String name) {
+		return BY_NAME.get(name);
+	}
+
+	/**
+	 * Removes the registration of the given name, for tests.
+	 */
+	static void unregister(String name) {
+		InputMaskSpec spec = BY_NAME.remove(name);
+		if (spec != null) {
+			NAMES.remove(spec, name);
+		}
+	}
+
+	/**
+	 * Returns the name this spec is registered under, or {@code null}.
+	 */
+	public String getName() {
+		return NAMES.get(this);
+	}
+
+	private Object writeReplace() {
+		return new SerializedForm(getName(), options);
+	}
+
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("InputMaskSpec is serialized through its SerializedForm");
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj == this || obj instanceof InputMaskSpec && options.equals(((InputMaskSpec) obj).options);
+	}
+
+	@Override
+	public int hashCode() {
+		return options.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "InputMaskSpec[" + engine + "]";
+	}
+
+	/**
+	 * Serialized form of a spec: its registered name, or its options if it has none.
+	 */
+	private static final class SerializedForm implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+		private final List<InputMaskOption> options;
+
+		SerializedForm(String name, List<InputMaskOption> options) {
+			this.name = name;
+			this.options = name == null ? options : null;
+		}
+
+		private Object readResolve() throws InvalidObjectException {
+			if (name == null) {
+				return of(options);
+			}
+			InputMaskSpec spec = named(name);
+			if (spec == null) {
+				throw new InvalidObjectException("Mask name '" + name + "' is not registered");
+			}
+			return spec;
+		}
+	}
+}
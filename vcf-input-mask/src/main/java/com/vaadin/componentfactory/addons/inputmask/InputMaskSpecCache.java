@@ -0,0 +1,216 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JVM-wide, bounded (least recently used) cache interning {@link InputMaskSpec}s by their options.
+ * The maximum size defaults to {@value #DEFAULT_MAXIMUM_SIZE} and can be changed with the
+ * {@code vaadin.inputmask.cache.maximumSize} system property or {@link #setMaximumSize(int)}.
+ * <p>
+ * Evicted specs are only weakly referenced afterwards: as long as an InputMask still uses one, equal
+ * options keep resolving to that instance, so identity sharing survives eviction. Only specs no
+ * longer used anywhere are parsed again.
+ */
+public final class InputMaskSpecCache {
+
+	static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+	private static final InputMaskSpecCache INSTANCE = new InputMaskSpecCache(
+			Integer.getInteger("vaadin.inputmask.cache.maximumSize", DEFAULT_MAXIMUM_SIZE));
+
+	private final Map<List<InputMaskOption>, InputMaskSpec> entries = new LinkedHashMap<List<InputMaskOption>, InputMaskSpec>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<InputMaskOption>, InputMaskSpec> eldest) {
+			if (size() > maximumSize) {
+				evict(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/** Evicted specs that may still be in use, by their options. */
+	private final Map<List<InputMaskOption>, EvictedSpec> evicted = new HashMap<>();
+
+	private final ReferenceQueue<InputMaskSpec> collected = new ReferenceQueue<>();
+
+	private int maximumSize;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	InputMaskSpecCache(int maximumSize) {
+		setMaximumSize(maximumSize);
+	}
+
+	public static InputMaskSpecCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the shared spec for the given options, creating and caching it on a miss.
+	 */
+	public InputMaskSpec get(List<InputMaskOption> options) {
+		synchronized (entries) {
+			InputMaskSpec spec = lookup(options);
+			if (spec != null) {
+				hitCount++;
+				return spec;
+			}
+			missCount++;
+		}
+		InputMaskSpec spec = new InputMaskSpec(Collections.unmodifiableList(copyOf(options)));
+		synchronized (entries) {
+			// another thread may have cached a spec for the same options meanwhile
+			InputMaskSpec existing = lookup(spec.getOptions());
+			if (existing != null) {
+				return existing;
+			}
+			entries.put(spec.getOptions(), spec);
+			return spec;
+		}
+	}
+
+	/**
+	 * Returns the cached spec for the given options, moving an evicted one that is still in use back
+	 * into the cache. Must be called while holding the lock on {@code entries}.
+	 */
+	private InputMaskSpec lookup(List<InputMaskOption> options) {
+		InputMaskSpec spec = entries.get(options);
+		if (spec != null) {
+			return spec;
+		}
+		for (EvictedSpec ref; (ref = (EvictedSpec) collected.poll()) != null;) {
+			evicted.remove(ref.options, ref);
+		}
+		EvictedSpec ref = evicted.remove(options);
+		spec = ref != null ? ref.get() : null;
+		if (spec != null) {
+			entries.put(spec.getOptions(), spec);
+		}
+		return spec;
+	}
+
+	private void evict(List<InputMaskOption> options, InputMaskSpec spec) {
+		evictionCount++;
+		evicted.put(options, new EvictedSpec(options, spec, collected));
+	}
+
+	private static List<InputMaskOption> copyOf(List<InputMaskOption> options) {
+		List<InputMaskOption> copy = new ArrayList<>(options.size());
+		for (InputMaskOption option : options) {
+			copy.add(option == null ? null : option.immutableCopy());
+		}
+		return copy;
+	}
+
+	public void setMaximumSize(int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+		}
+		synchronized (entries) {
+			this.maximumSize = maximumSize;
+			while (entries.size() > maximumSize) {
+				List<InputMaskOption> eldest = entries.keySet().iterator().next();
+				evict(eldest, entries.remove(eldest));
+			}
+		}
+	}
+
+	public int getMaximumSize() {
+		synchronized (entries) {
+			return maximumSize;
+		}
+	}
+
+	/**
+	 * Removes all entries. Statistics are kept.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			evicted.clear();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the cache statistics.
+	 */
+	public Stats getStats() {
+		synchronized (entries) {
+			return new Stats(hitCount, missCount, evictionCount, entries.size());
+		}
+	}
+
+	private static final class EvictedSpec extends WeakReference<InputMaskSpec> {
+
+		private final List<InputMaskOption> options;
+
+		EvictedSpec(List<InputMaskOption> options, InputMaskSpec spec, ReferenceQueue<InputMaskSpec> queue) {
+			super(spec, queue);
+			this.options = options;
+		}
+	}
+
+	/**
+	 * Immutable snapshot of {@link InputMaskSpecCache} statistics.
+	 */
+	public static final class Stats {
+
+		private final long hitCount;
+		private final long missCount;
+		private final long evictionCount;
+		private final int size;
+
+		Stats(long hitCount, long missCount, long evictionCount, int size) {
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.evictionCount = evictionCount;
+			this.size = size;
+		}
+
+		public long getHitCount() {
+			return hitCount;
+		}
+
+		public long getMissCount() {
+			return missCount;
+		}
+
+		public long getEvictionCount() {
+			return evictionCount;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats[hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+					+ ", size=" + size + "]";
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.vaadin.flow.data.binder.ValidationResult;
+import com.vaadin.flow.data.binder.ValueContext;
+import com.vaadin.flow.data.validator.AbstractValidator;
+
+/**
+ * Validator for string values (masked or unmasked) that checks on the server whether a mask
+ * accepts and completes them, without a round trip to the browser. Empty values are valid; use
+ * {@code asRequired} to reject them.
+ *
+ * @see InputMask#createValidator(String)
+ */
+public class InputMaskValidator extends AbstractValidator<String> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final InputMaskSpec spec;
+
+	public InputMaskValidator(String errorMessage, InputMaskSpec spec) {
+		super(errorMessage);
+		this.spec = spec;
+	}
+
+	@Override
+	public ValidationResult apply(String value, ValueContext context) {
+		return toResult(value, isValid(spec, value));
+	}
+
+	static boolean isValid(InputMaskSpec spec, String value) {
+		if (value == null || value.isEmpty()) {
+			return true;
+		}
+		int flags = spec.getEngine().resolve(value, null, null);
+		return (flags & MaskEngine.COMPLETE) != 0 && (flags & MaskEngine.REJECTED) == 0;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-UI registry of the mask definitions sent to the browser. Each definition is sent once per
+ * UI and given a short id; {@code <input-mask>} elements only reference that id, so the client
+ * parses every definition once no matter how many fields use it.
+ */
+@SuppressWarnings("serial")
+final class MaskDefinitionRegistry implements Serializable {
+
+	private final Map<InputMaskSpec, String> ids = new HashMap<>();
+
+	private MaskDefinitionRegistry() {
+	}
+
+	/**
+	 * Returns the id of the given mask in the given UI, sending the definition to the browser if
+	 * this is the first time the UI uses it.
+	 */
+	static String register(UI ui, InputMaskSpec mask) throws JsonProcessingException {
+		MaskDefinitionRegistry registry = ComponentUtil.getData(ui, MaskDefinitionRegistry.class);
+		if (registry == null) {
+			MaskDefinitionRegistry newRegistry = new MaskDefinitionRegistry();
+			ComponentUtil.setData(ui, MaskDefinitionRegistry.class, newRegistry);
+			// a reload of the page that keeps the UI (e.g. @PreserveOnRefresh) starts a new client
+			// without any definitions, while elements keep referencing them by id
+			ui.addAttachListener(event -> newRegistry.resend(ui));
+			ui.addBeforeEnterListener(event -> {
+				if (event.isRefreshEvent()) {
+					newRegistry.resend(ui);
+				}
+			});
+			registry = newRegistry;
+		}
+		String id = registry.ids.get(mask);
+		if (id == null) {
+			id = ui.getUIId() + "-" + registry.ids.size();
+			send(ui, id, mask);
+			registry.ids.put(mask, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Sends all definitions of the UI again, under their existing ids.
+	 */
+	private void resend(UI ui) {
+		for (Map.Entry<InputMaskSpec, String> entry : ids.entrySet()) {
+			try {
+				send(ui, entry.getValue(), entry.getKey());
+			} catch (JsonProcessingException ex) {
+				LoggerFactory.getLogger(MaskDefinitionRegistry.class).error("Error serializing InputMask options", ex);
+			}
+		}
+	}
+
+	private static void send(UI ui, String id, InputMaskSpec mask) throws JsonProcessingException {
+		ui.getPage().executeJs("customElements.whenDefined($0).then(() => customElements.get($0).define($1, $2))",
+				InputMask.TAG_NAME, id, mask.getOptionsJson());
+		InputMask.getMetrics().definitionSent(mask);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Server-side implementation of an imask mask type, compiled from the same options the browser
+ * uses. Engines are immutable and can be shared between threads.
+ *
+ * @see PatternMask
+ * @see DynamicMask
+ * @see NumberMask
+ * @see DateMask
+ */
+public abstract class MaskEngine implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Flag returned by {@link #resolve(CharSequence, StringBuilder, StringBuilder)}. */
+	static final int COMPLETE = 1;
+
+	/** Flag returned by {@link #resolve(CharSequence, StringBuilder, StringBuilder)}. */
+	static final int REJECTED = 2;
+
+	MaskEngine() {
+	}
+
+	/**
+	 * Compiles the engine matching the {@code mask} option of the given options.
+	 */
+	public static MaskEngine compile(List<InputMaskOption> options) {
+		for (InputMaskOption option : options) {
+			if (option != null && DateMask.DATE_PATTERN.equals(option.getKey())) {
+				return DateMask.compile(options);
+			}
+		}
+		for (InputMaskOption option : options) {
+			if (option != null && "mask".equals(option.getKey())) {
+				if (option.getValue() instanceof InputMaskOption[]) {
+					return DynamicMask.compile(options);
+				}
+				if ((option.isFunction() || option.isEval()) && NumberMask.NUMBER.equals(option.getValue())) {
+					return NumberMask.compile(options);
+				}
+			}
+		}
+		return PatternMask.compile(options);
+	}
+
+	/**
+	 * Returns whether all options of this mask can be evaluated on the server.
+	 */
+	public abstract boolean isSupported();
+
+	/**
+	 * Returns the masked representation of the given value, as the browser would display it.
+	 */
+	public String mask(String value) {
+		StringBuilder masked = new StringBuilder(sizeHint());
+		resolve(value, masked, null);
+		return masked.toString();
+	}
+
+	/**
+	 * Returns the unmasked representation of the given (raw or masked) value.
+	 */
+	public String unmask(String value) {
+		StringBuilder unmasked = new StringBuilder(sizeHint());
+		resolve(value, null, unmasked);
+		return unmasked.toString();
+	}
+
+	/**
+	 * Resolves the given value and returns masked value, unmasked value and completeness at once.
+	 */
+	public MaskedValue resolve(String value) {
+		StringBuilder masked = new StringBuilder(sizeHint());
+		StringBuilder unmasked = new StringBuilder(sizeHint());
+		int flags = resolve(value, masked, unmasked);
+		return new MaskedValue(masked.toString(), unmasked.toString(), (flags & COMPLETE) != 0);
+	}
+
+	/**
+	 * Returns whether the given (raw or masked) value fills all required parts of the mask, like
+	 * IMask's {@code isComplete}.
+	 */
+	public boolean isComplete(CharSequence value) {
+		return (resolve(value, null, null) & COMPLETE) != 0;
+	}
+
+	/**
+	 * Returns whether the mask accepts every char of the given (raw or masked) value, i.e. the
+	 * browser would not drop any of them while typing.
+	 */
+	public boolean accepts(CharSequence value) {
+		return (resolve(value, null, null) & REJECTED) == 0;
+	}
+
+	/**
+	 * Resolves {@code input} against the mask, appending the masked and unmasked values to the
+	 * given builders (either of which may be {@code null}).
+	 *
+	 * @return a combination of the {@link #COMPLETE} and {@link #REJECTED} flags
+	 * @throws UnsupportedOperationException if the mask is not {@link #isSupported() supported}
+	 */
+	abstract int resolve(CharSequence input, StringBuilder masked, StringBuilder unmasked);
+
+	/**
+	 * Initial capacity for the builders of a resolved value.
+	 */
+	int sizeHint() {
+		return 16;
+	}
+}
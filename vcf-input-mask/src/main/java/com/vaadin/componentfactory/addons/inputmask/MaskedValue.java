@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Immutable result of resolving a value against a mask: the masked text, the unmasked text and
+ * whether the mask is complete.
+ */
+public final class MaskedValue implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final MaskedValue EMPTY = new MaskedValue("", "", false);
+
+	private final String maskedValue;
+	private final String unmaskedValue;
+	private final boolean complete;
+
+	public MaskedValue(String maskedValue, String unmaskedValue, boolean complete) {
+		this.maskedValue = maskedValue == null ? "" : maskedValue;
+		this.unmaskedValue = unmaskedValue == null ? "" : unmaskedValue;
+		this.complete = complete;
+	}
+
+	public String getMaskedValue() {
+		return maskedValue;
+	}
+
+	public String getUnmaskedValue() {
+		return unmaskedValue;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof MaskedValue)) {
+			return false;
+		}
+		MaskedValue other = (MaskedValue) obj;
+		return complete == other.complete && maskedValue.equals(other.maskedValue)
+				&& unmaskedValue.equals(other.unmaskedValue);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(maskedValue, unmaskedValue, complete);
+	}
+
+	@Override
+	public String toString() {
+		return "MaskedValue[" + maskedValue + ", " + unmaskedValue + (complete ? ", complete]" : "]");
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.vaadin.flow.component.ComponentEvent;
+import com.vaadin.flow.component.DomEvent;
+import com.vaadin.flow.component.EventData;
+
+/**
+ * Fired when the value of the extended field changes in the browser. Masked value, unmasked value
+ * and completeness are sent with the event, so reading them costs no further round trip.
+ *
+ * @see InputMask#addMaskedValueChangeListener(com.vaadin.flow.component.ComponentEventListener)
+ */
+@SuppressWarnings("serial")
+@DomEvent(InputMask.CHANGE_EVENT)
+public class MaskedValueChangeEvent extends ComponentEvent<InputMask> {
+
+	private final MaskedValue value;
+
+	public MaskedValueChangeEvent(InputMask source, boolean fromClient,
+			@EventData("event.maskedValue") String maskedValue,
+			@EventData("event.unmaskedValue") String unmaskedValue,
+			@EventData("event.complete") boolean complete) {
+		super(source, fromClient);
+		this.value = new MaskedValue(maskedValue, unmaskedValue, complete);
+	}
+
+	/**
+	 * Returns masked value, unmasked value and completeness of the new value.
+	 */
+	public MaskedValue getValue() {
+		return value;
+	}
+
+	public String getMaskedValue() {
+		return value.getMaskedValue();
+	}
+
+	public String getUnmaskedValue() {
+		return value.getUnmaskedValue();
+	}
+
+	public boolean isComplete() {
+		return value.isComplete();
+	}
+}
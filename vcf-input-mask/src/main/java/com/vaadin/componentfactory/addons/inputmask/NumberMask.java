@@ -0,0 +1,576 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import com.vaadin.flow.data.binder.Result;
+import com.vaadin.flow.data.binder.ValueContext;
+import com.vaadin.flow.data.converter.Converter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Server-side implementation of imask's number mask, created with {@link InputMaskSpec#number}.
+ * It supports the {@code scale}, {@code radix}, {@code mapToRadix}, {@code thousandsSeparator},
+ * {@code min}, {@code max}, {@code padFractionalZeros} and {@code normalizeZeros} options.
+ * <p>
+ * Besides masking, it converts masked text directly to {@code long} (or the value multiplied by
+ * 10<sup>scale</sup>, for fixed-point arithmetic) and {@link BigDecimal}, and formats such values
+ * back, without intermediate strings. Values whose unscaled form does not fit into a {@code long}
+ * are not supported by the converters.
+ *
+ * <pre>
+ * InputMaskSpec amount = InputMaskSpec.number(scale(2), thousandsSeparator(' '), min(0));
+ * NumberMask mask = (NumberMask) amount.getEngine();
+ * binder.forField(amountField).withConverter(mask.toBigDecimalConverter("Not a valid amount"))...
+ * </pre>
+ */
+public final class NumberMask extends MaskEngine {
+
+	private static final long serialVersionUID = 1L;
+
+	static final String NUMBER = "Number";
+
+	/** Result of {@link #parse(CharSequence)} for invalid input. */
+	private static final long INVALID = Long.MIN_VALUE;
+
+	private static final int MAX_SCALE = 18;
+
+	private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final int scale;
+	private final char radix;
+	private final char[] mapToRadix;
+	private final char thousandsSeparator;
+	private final boolean padFractionalZeros;
+	private final boolean normalizeZeros;
+	private final long min;
+	private final long max;
+	private final String unsupportedReason;
+
+	private NumberMask(int scale, char radix, char[] mapToRadix, char thousandsSeparator,
+			boolean padFractionalZeros, boolean normalizeZeros, long min, long max, String unsupportedReason) {
+		this.scale = scale;
+		this.radix = radix;
+		this.mapToRadix = mapToRadix;
+		this.thousandsSeparator = thousandsSeparator;
+		this.padFractionalZeros = padFractionalZeros;
+		this.normalizeZeros = normalizeZeros;
+		this.min = min;
+		this.max = max;
+		this.unsupportedReason = unsupportedReason;
+	}
+
+	/**
+	 * Compiles a number mask from a list of options, whose {@code mask} option is
+	 * {@link InputMaskOption#number()}. Defaults are the same as imask's.
+	 */
+	public static NumberMask compile(List<InputMaskOption> options) {
+		int scale = 2;
+		char radix = ',';
+		char[] mapToRadix = { '.' };
+		char thousandsSeparator = 0;
+		boolean padFractionalZeros = false;
+		boolean normalizeZeros = true;
+		BigDecimal min = null;
+		BigDecimal max = null;
+		String unsupportedReason = null;
+		for (InputMaskOption option : options) {
+			if (option == null) {
+				continue;
+			}
+			Object value = option.getValue();
+			switch (option.getKey()) {
+				case "scale":
+					scale = value instanceof Number ? ((Number) value).intValue() : scale;
+					break;
+				case "radix":
+					radix = firstChar(value, radix);
+					break;
+				case "mapToRadix":
+					mapToRadix = chars(value);
+					break;
+				case "thousandsSeparator":
+					thousandsSeparator = firstChar(value, (char) 0);
+					break;
+				case "padFractionalZeros":
+					padFractionalZeros = Boolean.TRUE.equals(value);
+					break;
+				case "normalizeZeros":
+					normalizeZeros = !Boolean.FALSE.equals(value);
+					break;
+				case "min":
+					min = toBigDecimal(value);
+					break;
+				case "max":
+					max = toBigDecimal(value);
+					break;
+				default:
+					break;
+			}
+		}
+		if (thousandsSeparator != 0) {
+			// a separator like '.' must not also be taken as the radix
+			mapToRadix = new String(mapToRadix).replace(String.valueOf(thousandsSeparator), "").toCharArray();
+		}
+		if (scale < 0 || scale > MAX_SCALE) {
+			unsupportedReason = "scale " + scale;
+			scale = 0;
+		}
+		return new NumberMask(scale, radix, mapToRadix, thousandsSeparator, padFractionalZeros, normalizeZeros,
+				unscaledBound(min, scale, RoundingMode.CEILING, INVALID + 1),
+				unscaledBound(max, scale, RoundingMode.FLOOR, Long.MAX_VALUE), unsupportedReason);
+	}
+
+	private static char firstChar(Object value, char defaultValue) {
+		if (value instanceof Character) {
+			return (Character) value;
+		}
+		return value instanceof String && !((String) value).isEmpty() ? ((String) value).charAt(0) : defaultValue;
+	}
+
+	private static char[] chars(Object value) {
+		Object[] values = value instanceof Object[] ? (Object[]) value
+				: value instanceof Collection ? ((Collection<?>) value).toArray() : new Object[] { value };
+		char[] result = new char[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = firstChar(values[i], (char) 0);
+		}
+		return result;
+	}
+
+	private static BigDecimal toBigDecimal(Object value) {
+		if (value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+		try {
+			return value == null ? null : new BigDecimal(value.toString());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static long unscaledBound(BigDecimal bound, int scale, RoundingMode rounding, long unbounded) {
+		if (bound == null) {
+			return unbounded;
+		}
+		BigInteger unscaled = bound.setScale(scale, rounding).unscaledValue();
+		return unscaled.bitLength() < 63 ? unscaled.longValue() : unbounded;
+	}
+
+	public int getScale() {
+		return scale;
+	}
+
+	public char getRadix() {
+		return radix;
+	}
+
+	@Override
+	public boolean isSupported() {
+		return unsupportedReason == null;
+	}
+
+	@Override
+	int resolve(CharSequence input, StringBuilder masked, StringBuilder unmasked) {
+		checkSupported();
+		int length = input == null ? 0 : input.length();
+		boolean rejected = false;
+		boolean negative = false;
+		boolean radixSeen = false;
+		boolean zeroSeen = false;
+		boolean overflow = false;
+		int intDigits = 0;
+		int fractionDigits = 0;
+		long value = 0;
+		int intStart = masked == null ? 0 : masked.length();
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (radixSeen) {
+					if (fractionDigits == scale) {
+						rejected = true;
+						continue;
+					}
+					if (fractionDigits == 0) {
+						append(unmasked, '.');
+					}
+					fractionDigits++;
+				} else if (c == '0' && intDigits == 0 && normalizeZeros) {
+					// leading zeros are dropped
+					zeroSeen = true;
+					continue;
+				} else {
+					intDigits++;
+				}
+				overflow |= value > (Long.MAX_VALUE - (c - '0')) / 10;
+				value = value * 10 + (c - '0');
+				append(masked, c);
+				append(unmasked, c);
+			} else if (c == '-' && min < 0 && !negative && intDigits == 0 && !zeroSeen && !radixSeen) {
+				negative = true;
+				append(masked, '-');
+				append(unmasked, '-');
+				intStart++;
+			} else if (c == thousandsSeparator && thousandsSeparator != 0) {
+				rejected |= radixSeen;
+			} else if (isRadix(c) && scale > 0 && !radixSeen) {
+				radixSeen = true;
+				intDigits = closeIntegerPart(masked, unmasked, intStart, intDigits, true);
+				append(masked, radix);
+			} else {
+				rejected = true;
+			}
+		}
+		if (!radixSeen) {
+			intDigits = closeIntegerPart(masked, unmasked, intStart, intDigits, zeroSeen);
+		}
+		boolean hasDigits = intDigits > 0 || fractionDigits > 0;
+		if (padFractionalZeros && hasDigits && scale > 0 && fractionDigits < scale) {
+			if (!radixSeen) {
+				append(masked, radix);
+			}
+			for (int d = fractionDigits; d < scale; d++) {
+				append(masked, '0');
+			}
+		}
+		boolean inRange = false;
+		if (hasDigits && !overflow) {
+			long unscaled = scaleUp(value, scale - fractionDigits);
+			if (unscaled != INVALID) {
+				unscaled = negative ? -unscaled : unscaled;
+				inRange = unscaled >= min && unscaled <= max;
+			}
+		}
+		return (inRange ? COMPLETE : 0) | (rejected || (hasDigits && !inRange) ? REJECTED : 0);
+	}
+
+	/**
+	 * Adds a zero for an empty integer part and groups the integer digits.
+	 *
+	 * @return the number of integer digits
+	 */
+	private int closeIntegerPart(StringBuilder masked, StringBuilder unmasked, int intStart, int intDigits,
+			boolean addZero) {
+		if (intDigits == 0) {
+			if (!addZero) {
+				return 0;
+			}
+			append(masked, '0');
+			append(unmasked, '0');
+			return 1;
+		}
+		if (masked != null && thousandsSeparator != 0) {
+			for (int position = intStart + intDigits - 3; position > intStart; position -= 3) {
+				masked.insert(position, thousandsSeparator);
+			}
+		}
+		return intDigits;
+	}
+
+	private boolean isRadix(char c) {
+		if (c == radix) {
+			return true;
+		}
+		for (char mapped : mapToRadix) {
+			if (c == mapped) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void append(StringBuilder builder, char c) {
+		if (builder != null) {
+			builder.append(c);
+		}
+	}
+
+	/**
+	 * Parses the masked (or unmasked) text into the value multiplied by 10<sup>scale</sup>. When the
+	 * thousands separator is {@code '.'}, it is read as a separator, so only masked text is parsed.
+	 *
+	 * @return the unscaled value, or {@link #INVALID} if the text contains chars not accepted by
+	 *         the mask, no digits, too many fraction digits or a value out of range
+	 */
+	private long parse(CharSequence input) {
+		checkSupported();
+		int length = input.length();
+		boolean negative = false;
+		boolean radixSeen = false;
+		boolean hasDigits = false;
+		int fractionDigits = 0;
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (radixSeen && ++fractionDigits > scale) {
+					return INVALID;
+				}
+				if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+					return INVALID;
+				}
+				value = value * 10 + (c - '0');
+				hasDigits = true;
+			} else if (c == '-' && i == 0) {
+				negative = true;
+			} else if (c == thousandsSeparator && thousandsSeparator != 0) {
+				if (radixSeen) {
+					return INVALID;
+				}
+			} else if ((c == '.' || isRadix(c)) && scale > 0 && !radixSeen) {
+				radixSeen = true;
+			} else {
+				return INVALID;
+			}
+		}
+		long unscaled = hasDigits ? scaleUp(value, scale - fractionDigits) : INVALID;
+		if (unscaled == INVALID) {
+			return INVALID;
+		}
+		unscaled = negative ? -unscaled : unscaled;
+		return unscaled >= min && unscaled <= max ? unscaled : INVALID;
+	}
+
+	private static long scaleUp(long value, int digits) {
+		long power = POWERS_OF_TEN[digits];
+		return value > Long.MAX_VALUE / power ? INVALID : value * power;
+	}
+
+	private void checkSupported() {
+		if (unsupportedReason != null) {
+			throw new UnsupportedOperationException(
+					"Number mask cannot be resolved on the server: " + unsupportedReason);
+		}
+	}
+
+	/**
+	 * Returns the value of the given text multiplied by 10<sup>scale</sup>, e.g. {@code 123450}
+	 * for {@code "1 234,50"} with scale 2.
+	 *
+	 * @throws NumberFormatException if the text is not a valid, in-range value of this mask
+	 */
+	public long toUnscaledLong(CharSequence value) {
+		long unscaled = parse(value);
+		if (unscaled == INVALID) {
+			throw new NumberFormatException("Not a valid number for this mask: " + value);
+		}
+		return unscaled;
+	}
+
+	/**
+	 * Returns the value of the given text, which must not have a non-zero fractional part.
+	 *
+	 * @throws NumberFormatException if the text is not a valid, in-range integer of this mask
+	 */
+	public long toLong(CharSequence value) {
+		long unscaled = toUnscaledLong(value);
+		if (unscaled % POWERS_OF_TEN[scale] != 0) {
+			throw new NumberFormatException("Not an integer: " + value);
+		}
+		return unscaled / POWERS_OF_TEN[scale];
+	}
+
+	/**
+	 * Returns the value of the given text, with the scale of this mask.
+	 *
+	 * @throws NumberFormatException if the text is not a valid, in-range value of this mask
+	 */
+	public BigDecimal toBigDecimal(CharSequence value) {
+		return BigDecimal.valueOf(toUnscaledLong(value), scale);
+	}
+
+	/**
+	 * Formats an integer value as the browser would display it.
+	 */
+	public String format(long value) {
+		long unscaled = value == Long.MIN_VALUE ? INVALID : scaleUp(Math.abs(value), scale);
+		if (unscaled == INVALID) {
+			throw new IllegalArgumentException("Value out of range: " + value);
+		}
+		StringBuilder result = new StringBuilder(sizeHint());
+		formatUnscaled(value < 0 ? -unscaled : unscaled, result);
+		return result.toString();
+	}
+
+	/**
+	 * Formats a value, rounded half up to the scale of this mask, as the browser would display it.
+	 */
+	public String format(BigDecimal value) {
+		BigDecimal scaled = value.setScale(scale, RoundingMode.HALF_UP);
+		BigInteger unscaled = scaled.unscaledValue();
+		StringBuilder result = new StringBuilder(sizeHint());
+		if (unscaled.bitLength() >= 63) {
+			formatDigits(unscaled.signum() < 0, unscaled.abs().toString(), result);
+		} else {
+			formatUnscaled(unscaled.longValue(), result);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Formats the decimal digits of a value multiplied by 10<sup>scale</sup> that does not fit a
+	 * {@code long}, with the configured radix and thousands separator.
+	 */
+	private void formatDigits(boolean negative, String digits, StringBuilder target) {
+		checkSupported();
+		int intDigits = digits.length() - scale;
+		if (negative) {
+			target.append('-');
+		}
+		for (int i = 0; i < intDigits; i++) {
+			target.append(digits.charAt(i));
+			int remaining = intDigits - i - 1;
+			if (remaining > 0 && remaining % 3 == 0 && thousandsSeparator != 0) {
+				target.append(thousandsSeparator);
+			}
+		}
+		int end = digits.length();
+		if (!padFractionalZeros) {
+			while (end > intDigits && digits.charAt(end - 1) == '0') {
+				end--;
+			}
+		}
+		if (end > intDigits) {
+			target.append(radix).append(digits, intDigits, end);
+		}
+	}
+
+	/**
+	 * Appends the given value multiplied by 10<sup>scale</sup> (see
+	 * {@link #toUnscaledLong(CharSequence)}) to {@code target}, as the browser would display it.
+	 */
+	public void formatUnscaled(long unscaled, StringBuilder target) {
+		checkSupported();
+		if (unscaled == INVALID) {
+			throw new IllegalArgumentException("Value out of range: " + unscaled);
+		}
+		long magnitude = Math.abs(unscaled);
+		long intPart = magnitude / POWERS_OF_TEN[scale];
+		long fraction = magnitude % POWERS_OF_TEN[scale];
+		if (unscaled < 0) {
+			target.append('-');
+		}
+		int digits = 1;
+		while (digits < POWERS_OF_TEN.length && intPart >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+		for (int d = digits - 1; d >= 0; d--) {
+			target.append((char) ('0' + intPart / POWERS_OF_TEN[d] % 10));
+			if (d > 0 && d % 3 == 0 && thousandsSeparator != 0) {
+				target.append(thousandsSeparator);
+			}
+		}
+		int fractionDigits = scale;
+		if (!padFractionalZeros) {
+			while (fractionDigits > 0 && fraction % 10 == 0) {
+				fraction /= 10;
+				fractionDigits--;
+			}
+		}
+		if (fractionDigits > 0) {
+			target.append(radix);
+			for (int d = fractionDigits - 1; d >= 0; d--) {
+				target.append((char) ('0' + fraction / POWERS_OF_TEN[d] % 10));
+			}
+		}
+	}
+
+	/**
+	 * Returns a Binder converter between the masked text and its integer value.
+	 */
+	public Converter<String, Long> toLongConverter(String errorMessage) {
+		return new NumberConverter<Long>(errorMessage) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			Long fromUnscaled(long unscaled) {
+				return unscaled % POWERS_OF_TEN[scale] == 0 ? unscaled / POWERS_OF_TEN[scale] : null;
+			}
+
+			@Override
+			public String convertToPresentation(Long value, ValueContext context) {
+				return value == null ? "" : format(value);
+			}
+		};
+	}
+
+	/**
+	 * Returns a Binder converter between the masked text and its value.
+	 */
+	public Converter<String, BigDecimal> toBigDecimalConverter(String errorMessage) {
+		return new NumberConverter<BigDecimal>(errorMessage) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			BigDecimal fromUnscaled(long unscaled) {
+				return BigDecimal.valueOf(unscaled, scale);
+			}
+
+			@Override
+			public String convertToPresentation(BigDecimal value, ValueContext context) {
+				return value == null ? "" : format(value);
+			}
+		};
+	}
+
+	@Override
+	int sizeHint() {
+		return 24;
+	}
+
+	@Override
+	public String toString() {
+		return "NumberMask[scale=" + scale + ", radix=" + radix + "]";
+	}
+
+	/**
+	 * Converter parsing with {@link NumberMask#parse(CharSequence)}, without exceptions for invalid
+	 * input.
+	 */
+	private abstract class NumberConverter<T> implements Converter<String, T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String errorMessage;
+
+		NumberConverter(String errorMessage) {
+			this.errorMessage = errorMessage;
+		}
+
+		/**
+		 * @return the model value, or {@code null} if the unscaled value cannot be represented
+		 */
+		abstract T fromUnscaled(long unscaled);
+
+		@Override
+		public Result<T> convertToModel(String value, ValueContext context) {
+			if (value == null || value.isEmpty()) {
+				return Result.ok(null);
+			}
+			long unscaled = parse(value);
+			T result = unscaled == INVALID ? null : fromUnscaled(unscaled);
+			return result == null ? Result.error(errorMessage) : Result.ok(result);
+		}
+	}
+}
@@ -0,0 +1,571 @@
+/*
+ * Copyright 2023 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.componentfactory.addons.inputmask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server-side implementation of imask's pattern mask. It understands the same pattern syntax as
+ * the {@code mask} option: {@code 0} (digit), {@code a} (letter), {@code *} (any char), fixed
+ * chars, {@code \} escapes, {@code [ ]} optional parts, {@code { }} fixed chars kept in the
+ * unmasked value and named {@code blocks} (nested patterns or {@code IMask.MaskedRange}). The
+ * {@code lazy} and {@code placeholderChar} options are applied to the masked value;
+ * {@code overwrite} only affects editing in the browser and is ignored here.
+ * <p>
+ * Instances are immutable and can be shared between threads. Masks using features that only exist
+ * in the browser (e.g. evaluated mask functions or custom {@code definitions}) still compile, but
+ * {@link #isSupported()} returns {@code false} and resolving values throws
+ * {@link UnsupportedOperationException}.
+ */
+public final class PatternMask extends MaskEngine {
+
+	private static final long serialVersionUID = 1L;
+
+	static final char DEFAULT_PLACEHOLDER_CHAR = '_';
+
+	static final String MASKED_RANGE = "IMask.MaskedRange";
+
+	private static final byte FIXED = 0;
+	private static final byte DIGIT = 1;
+	private static final byte LETTER = 2;
+	private static final byte ANY = 3;
+
+	private static final byte PREPARE_NONE = 0;
+	private static final byte PREPARE_UPPERCASE = 1;
+	private static final byte PREPARE_LOWERCASE = 2;
+	private static final byte PREPARE_DIGITS_ONLY = 3;
+
+	private final String pattern;
+	private final byte[] kinds;
+	private final char[] chars;
+	private final boolean[] optional;
+	private final boolean[] unmasking;
+	private final int[] rangeOf;
+	private final int[] rangeLength;
+	private final long[] rangeFrom;
+	private final long[] rangeTo;
+	private final int lastRequired;
+	private final boolean lazy;
+	private final char placeholderChar;
+	private final byte prepare;
+	private final String unsupportedReason;
+
+	private PatternMask(String pattern, Compiler compiler, boolean lazy, char placeholderChar,
+			byte prepare, String unsupportedReason) {
+		this.pattern = pattern;
+		int size = compiler.size;
+		this.kinds = Arrays.copyOf(compiler.kinds, size);
+		this.chars = Arrays.copyOf(compiler.chars, size);
+		this.optional = Arrays.copyOf(compiler.optional, size);
+		this.unmasking = Arrays.copyOf(compiler.unmasking, size);
+		this.rangeOf = Arrays.copyOf(compiler.rangeOf, size);
+		int ranges = compiler.ranges;
+		this.rangeLength = Arrays.copyOf(compiler.rangeLength, ranges);
+		this.rangeFrom = Arrays.copyOf(compiler.rangeFrom, ranges);
+		this.rangeTo = Arrays.copyOf(compiler.rangeTo, ranges);
+		int last = -1;
+		for (int i = 0; i < size; i++) {
+			if (kinds[i] != FIXED && !optional[i]) {
+				last = i;
+			}
+		}
+		this.lastRequired = last;
+		this.lazy = lazy;
+		this.placeholderChar = placeholderChar;
+		this.prepare = prepare;
+		this.unsupportedReason = unsupportedReason;
+	}
+
+	/**
+	 * Compiles a pattern mask from the given mask string and options.
+	 */
+	public static PatternMask compile(String mask, InputMaskOption... options) {
+		Compiler compiler = new Compiler();
+		compiler.options(InputMaskOption.option("mask", mask));
+		if (options != null) {
+			compiler.options(options);
+		}
+		return compiler.build();
+	}
+
+	/**
+	 * Compiles a pattern mask from a list of options, as kept by {@link InputMask}.
+	 */
+	public static PatternMask compile(List<InputMaskOption> options) {
+		Compiler compiler = new Compiler();
+		compiler.options(options.toArray(new InputMaskOption[0]));
+		return compiler.build();
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	@Override
+	public boolean isSupported() {
+		return unsupportedReason == null;
+	}
+
+	@Override
+	int sizeHint() {
+		return kinds.length;
+	}
+
+	@Override
+	int resolve(CharSequence input, StringBuilder masked, StringBuilder unmasked) {
+		if (unsupportedReason != null) {
+			throw new UnsupportedOperationException(
+					"Mask '" + pattern + "' cannot be resolved on the server: " + unsupportedReason);
+		}
+		int length = input == null ? 0 : input.length();
+		int size = kinds.length;
+		int slot = 0;
+		int i = 0;
+		boolean rejected = false;
+		boolean holes = false;
+		boolean pendingHole = false;
+		int markSlot = -1;
+		int markMasked = 0;
+		int markUnmasked = 0;
+		int range = -1;
+		long rangeValue = 0;
+		int rangeDigits = 0;
+		boolean outOfRange = false;
+
+		while (i < length && slot < size) {
+			char c = input.charAt(i);
+			if (prepare != PREPARE_NONE) {
+				if (prepare == PREPARE_UPPERCASE) {
+					c = Character.toUpperCase(c);
+				} else if (prepare == PREPARE_LOWERCASE) {
+					c = Character.toLowerCase(c);
+				} else if (c < '0' || c > '9') {
+					// dropped by the prepare function, not rejected by the mask
+					i++;
+					continue;
+				}
+			}
+			byte kind = kinds[slot];
+			if (kind == FIXED) {
+				if (c == chars[slot]) {
+					i++;
+					markSlot = -1;
+					holes |= pendingHole;
+					pendingHole = false;
+				} else if (markSlot < 0) {
+					markSlot = slot;
+					markMasked = masked == null ? 0 : masked.length();
+					markUnmasked = unmasked == null ? 0 : unmasked.length();
+				}
+				append(masked, chars[slot]);
+				if (unmasking[slot]) {
+					append(unmasked, chars[slot]);
+				}
+				slot++;
+				continue;
+			}
+			int r = rangeOf[slot];
+			if (r != range) {
+				outOfRange |= range >= 0 && !inRange(range, rangeValue, rangeDigits);
+				range = r;
+				rangeValue = 0;
+				rangeDigits = 0;
+			}
+			if (fits(kind, c) && (r < 0 || acceptsRangeDigit(r, rangeValue, rangeDigits, c))) {
+				if (r >= 0) {
+					rangeValue = rangeValue * 10 + (c - '0');
+					rangeDigits++;
+				}
+				append(masked, c);
+				append(unmasked, c);
+				markSlot = -1;
+				holes |= pendingHole;
+				pendingHole = false;
+				slot++;
+				i++;
+			} else if (!lazy && c == placeholderChar) {
+				if (markSlot < 0) {
+					markSlot = slot;
+					markMasked = masked == null ? 0 : masked.length();
+					markUnmasked = unmasked == null ? 0 : unmasked.length();
+				}
+				append(masked, c);
+				pendingHole = true;
+				slot++;
+				i++;
+			} else if (optional[slot]) {
+				slot++;
+			} else {
+				rejected = true;
+				i++;
+			}
+		}
+		if (i < length) {
+			rejected = true;
+		}
+		if (markSlot >= 0) {
+			// fixed chars and placeholders after the last accepted char are not part of the value
+			slot = markSlot;
+			if (masked != null) {
+				masked.setLength(markMasked);
+			}
+			if (unmasked != null) {
+				unmasked.setLength(markUnmasked);
+			}
+		}
+		outOfRange |= range >= 0 && !inRange(range, rangeValue, rangeDigits);
+		boolean complete = slot > lastRequired && !holes && !outOfRange;
+		if (!lazy && masked != null) {
+			for (int s = slot; s < size; s++) {
+				masked.append(kinds[s] == FIXED ? chars[s] : placeholderChar);
+			}
+		}
+		return (complete ? COMPLETE : 0) | (rejected ? REJECTED : 0);
+	}
+
+	/**
+	 * Returns whether a value starting with the given char can be accepted by this mask, i.e.
+	 * whether the char fits the first input slot or matches a fixed char before it. Used to build
+	 * the dispatch table of a {@link DynamicMask}.
+	 */
+	boolean mayStartWith(char c) {
+		if (prepare == PREPARE_UPPERCASE) {
+			c = Character.toUpperCase(c);
+		} else if (prepare == PREPARE_LOWERCASE) {
+			c = Character.toLowerCase(c);
+		} else if (prepare == PREPARE_DIGITS_ONLY && (c < '0' || c > '9')) {
+			// dropped before the mask sees it
+			return true;
+		}
+		for (int slot = 0; slot < kinds.length; slot++) {
+			if (kinds[slot] == FIXED) {
+				if (c == chars[slot]) {
+					return true;
+				}
+			} else if (fits(kinds[slot], c) || (!lazy && c == placeholderChar)) {
+				return true;
+			} else if (!optional[slot]) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private static void append(StringBuilder builder, char c) {
+		if (builder != null) {
+			builder.append(c);
+		}
+	}
+
+	private static boolean fits(byte kind, char c) {
+		switch (kind) {
+			case DIGIT:
+				return c >= '0' && c <= '9';
+			case LETTER:
+				return Character.isLetter(c);
+			default:
+				return true;
+		}
+	}
+
+	private boolean acceptsRangeDigit(int range, long value, int digits, char c) {
+		// reject digits that cannot lead to a value within [from, to]
+		long scale = 1;
+		for (int d = digits + 1; d < rangeLength[range]; d++) {
+			scale *= 10;
+		}
+		long prefix = value * 10 + (c - '0');
+		long min = prefix * scale;
+		long max = (prefix + 1) * scale - 1;
+		return max >= rangeFrom[range] && min <= rangeTo[range];
+	}
+
+	private boolean inRange(int range, long value, int digits) {
+		return digits < rangeLength[range] || (value >= rangeFrom[range] && value <= rangeTo[range]);
+	}
+
+	@Override
+	public String toString() {
+		return "PatternMask[" + pattern + "]";
+	}
+
+	/**
+	 * Translates imask options into the flat slot arrays of a {@link PatternMask}.
+	 */
+	static final class Compiler {
+
+		private byte[] kinds = new byte[16];
+		private char[] chars = new char[16];
+		private boolean[] optional = new boolean[16];
+		private boolean[] unmasking = new boolean[16];
+		private int[] rangeOf = new int[16];
+		private int size;
+
+		private int[] rangeLength = new int[2];
+		private long[] rangeFrom = new long[2];
+		private long[] rangeTo = new long[2];
+		private int ranges;
+
+		private String mask;
+		private boolean maskEval;
+		private Object maskValue;
+		private InputMaskOption[] blocks;
+		private boolean lazy = true;
+		private char placeholderChar = DEFAULT_PLACEHOLDER_CHAR;
+		private byte prepare = PREPARE_NONE;
+		private String unsupportedReason;
+
+		void options(InputMaskOption... options) {
+			for (InputMaskOption option : options) {
+				if (option == null) {
+					continue;
+				}
+				Object value = option.getValue();
+				switch (option.getKey()) {
+					case "mask":
+						maskValue = value;
+						maskEval = option.isEval();
+						mask = value instanceof String ? (String) value : null;
+						break;
+					case "blocks":
+						blocks = asOptions(value);
+						break;
+					case "lazy":
+						lazy = !Boolean.FALSE.equals(value);
+						break;
+					case "placeholderChar":
+						if (value instanceof String && !((String) value).isEmpty()) {
+							placeholderChar = ((String) value).charAt(0);
+						}
+						break;
+					case "prepare":
+						if (option.isFunction() && InputMaskOption.UPPERCASE.equals(value)) {
+							prepare = PREPARE_UPPERCASE;
+						} else if (option.isFunction() && InputMaskOption.LOWERCASE.equals(value)) {
+							prepare = PREPARE_LOWERCASE;
+						} else if (option.isFunction() && InputMaskOption.DIGITS_ONLY.equals(value)) {
+							prepare = PREPARE_DIGITS_ONLY;
+						} else {
+							unsupported("prepare function " + value);
+						}
+						break;
+					case "definitions":
+						unsupported("custom definitions");
+						break;
+					default:
+						break;
+				}
+			}
+		}
+
+		PatternMask build() {
+			if (mask == null || maskEval) {
+				unsupported("mask " + maskValue);
+			} else {
+				parse(mask, blockMap(blocks), false, false);
+			}
+			return new PatternMask(mask == null ? String.valueOf(maskValue) : mask, this, lazy,
+					placeholderChar, prepare, unsupportedReason);
+		}
+
+		private void unsupported(String reason) {
+			if (unsupportedReason == null) {
+				unsupportedReason = reason;
+			}
+		}
+
+		private static Map<String, InputMaskOption[]> blockMap(InputMaskOption[] blocks) {
+			Map<String, InputMaskOption[]> result = new HashMap<>();
+			if (blocks != null) {
+				for (InputMaskOption block : blocks) {
+					InputMaskOption[] options = asOptions(block.getValue());
+					if (options != null) {
+						result.put(block.getKey(), options);
+					}
+				}
+			}
+			return result;
+		}
+
+		private void parse(String pattern, Map<String, InputMaskOption[]> blocks, boolean inOptional,
+				boolean inUnmasking) {
+			boolean isOptional = inOptional;
+			boolean isUnmasking = inUnmasking;
+			for (int i = 0; i < pattern.length(); i++) {
+				String blockName = null;
+				for (String name : blocks.keySet()) {
+					if (pattern.startsWith(name, i)
+							&& (blockName == null || name.length() > blockName.length())) {
+						blockName = name;
+					}
+				}
+				if (blockName != null) {
+					block(blocks.get(blockName), isOptional, isUnmasking);
+					i += blockName.length() - 1;
+					continue;
+				}
+				char c = pattern.charAt(i);
+				byte kind;
+				switch (c) {
+					case '{':
+						isUnmasking = true;
+						continue;
+					case '}':
+						isUnmasking = inUnmasking;
+						continue;
+					case '[':
+						isOptional = true;
+						continue;
+					case ']':
+						isOptional = inOptional;
+						continue;
+					case '\\':
+						if (++i >= pattern.length()) {
+							return;
+						}
+						c = pattern.charAt(i);
+						kind = FIXED;
+						break;
+					case '0':
+						kind = DIGIT;
+						break;
+					case 'a':
+						kind = LETTER;
+						break;
+					case '*':
+						kind = ANY;
+						break;
+					default:
+						kind = FIXED;
+						break;
+				}
+				slot(kind, c, isOptional, isUnmasking, -1);
+			}
+		}
+
+		private void block(InputMaskOption[] options, boolean isOptional, boolean isUnmasking) {
+			String blockMask = null;
+			boolean range = false;
+			Long from = null;
+			Long to = null;
+			Integer maxLength = null;
+			InputMaskOption[] nested = null;
+			for (InputMaskOption option : options) {
+				Object value = option.getValue();
+				switch (option.getKey()) {
+					case "mask":
+						if ((option.isEval() || option.isFunction()) && MASKED_RANGE.equals(value)) {
+							range = true;
+						} else if (!option.isEval() && value instanceof String) {
+							blockMask = (String) value;
+						} else {
+							unsupported("block mask " + value);
+						}
+						break;
+					case "from":
+						from = toLong(value);
+						break;
+					case "to":
+						to = toLong(value);
+						break;
+					case "maxLength":
+						Long length = toLong(value);
+						maxLength = length == null ? null : length.intValue();
+						break;
+					case "blocks":
+						nested = asOptions(value);
+						break;
+					default:
+						break;
+				}
+			}
+			if (range) {
+				if (from == null || to == null) {
+					unsupported("MaskedRange block without from/to");
+					return;
+				}
+				int length = maxLength != null ? maxLength : String.valueOf(to).length();
+				int index = addRange(length, from, to);
+				for (int d = 0; d < length; d++) {
+					slot(DIGIT, '0', isOptional, isUnmasking, index);
+				}
+			} else if (blockMask != null) {
+				parse(blockMask, blockMap(nested), isOptional, isUnmasking);
+			} else {
+				unsupported("block without mask");
+			}
+		}
+
+		/**
+		 * Nested options are kept as an array, except when a single option is passed to
+		 * {@link InputMaskOption#option(String, Object)}.
+		 */
+		static InputMaskOption[] asOptions(Object value) {
+			if (value instanceof InputMaskOption[]) {
+				return (InputMaskOption[]) value;
+			}
+			if (value instanceof InputMaskOption) {
+				return new InputMaskOption[] { (InputMaskOption) value };
+			}
+			return null;
+		}
+
+		private static Long toLong(Object value) {
+			if (value instanceof Number) {
+				return ((Number) value).longValue();
+			}
+			if (value instanceof String) {
+				try {
+					return Long.valueOf((String) value);
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+			return null;
+		}
+
+		private int addRange(int length, long from, long to) {
+			if (ranges == rangeLength.length) {
+				int capacity = ranges * 2;
+				rangeLength = Arrays.copyOf(rangeLength, capacity);
+				rangeFrom = Arrays.copyOf(rangeFrom, capacity);
+				rangeTo = Arrays.copyOf(rangeTo, capacity);
+			}
+			rangeLength[ranges] = length;
+			rangeFrom[ranges] = from;
+			rangeTo[ranges] = to;
+			return ranges++;
+		}
+
+		private void slot(byte kind, char c, boolean isOptional, boolean isUnmasking, int range) {
+			if (size == kinds.length) {
+				int capacity = size * 2;
+				kinds = Arrays.copyOf(kinds, capacity);
+				chars = Arrays.copyOf(chars, capacity);
+				optional = Arrays.copyOf(optional, capacity);
+				unmasking = Arrays.copyOf(unmasking, capacity);
+				rangeOf = Arrays.copyOf(rangeOf, capacity);
+			}
+			kinds[size] = kind;
+			chars[size] = c;
+			optional[size] = isOptional;
+			unmasking[size] = isUnmasking && kind == FIXED;
+			rangeOf[size] = range;
+			size++;
+		}
+	}
+}
@@ -12,7 +12,13 @@
  * the License.
  */
 import { LitElement } from 'lit';
-import IMask from 'imask';
+
+/**
+ * The IMask library, loaded with a dynamic import when the first `<input-mask>` connects, so it
+ * is split from the application bundle and not parsed on views without masked fields.
+ */
+let IMask;
+let imaskLoading;
 
 /**
  * `input-mask` Web Component wrapper for IMask.js
@@ -26,6 +32,18 @@ class InputMask extends LitElement {
         type: Object,
         observer: '_optionsChanged'
       },
+      definition: {
+        type: String
+      },
+      reportMetrics: {
+        type: Boolean
+      },
+      initOnFocus: {
+        type: Boolean
+      },
+      keepAlive: {
+        type: Number
+      },
       imask: {
         type: Object
       }
@@ -37,12 +55,172 @@ class InputMask extends LitElement {
   }  
     
   set unmaskedValue(value) {}
+
+  /**
+   * Registers a mask definition sent once per UI by the server. Elements referencing it through
+   * their `definition` property share the parsed IMask options.
+   */
+  static define(id, options) {
+    InputMask._definitions[id] = { options };
+    const pending = InputMask._pending[id];
+    delete InputMask._pending[id];
+    if (pending) {
+      pending.forEach(element => element._definitionReady());
+    }
+  }
+
+  /** Returns the IMask options of this element, parsing a shared definition only once */
+  _getIMaskOptions() {
+    if (this.definition) {
+      const definition = InputMask._definitions[this.definition];
+      if (!definition.imaskOptions) {
+        definition.imaskOptions = this._generateIMaskOptions(JSON.parse(definition.options));
+      }
+      return definition.imaskOptions;
+    }
+    return this._generateIMaskOptions(JSON.parse(this.options));
+  }
+
+  /** Whether the options are available, otherwise waits for the definition to be registered */
+  _hasOptions() {
+    if (this.definition) {
+      if (this._optionsAvailable()) {
+        return true;
+      }
+      const pending = InputMask._pending[this.definition] || (InputMask._pending[this.definition] = new Set());
+      pending.add(this);
+      return false;
+    }
+    return !!this.options;
+  }
+
+  _optionsAvailable() {
+    return this.definition ? !!InputMask._definitions[this.definition] : !!this.options;
+  }
+
+  _definitionReady() {
+    if (!IMask || !this.isConnected || this.imask) {
+      return;
+    }
+    if (this._isDeferred()) {
+      this._formatDeferred();
+    } else {
+      this._initImask();
+    }
+  }
+
+  /** Whether the IMask instance is only created once the field gets focus */
+  _isDeferred() {
+    return !!this._scope || (this.initOnFocus && !this._focusReceived);
+  }
+
+  /**
+   * Formats the value the field was rendered with without creating an IMask instance, so a value
+   * set on the server does not show unformatted until the field is focused.
+   */
+  _formatDeferred() {
+    const parent = this.parentElement;
+    if (!parent || !this._hasOptions()) {
+      return;
+    }
+    const value = typeof parent.value === 'string' ? parent.value : this._inputValue();
+    if (value) {
+      parent.value = this._resolve(value).value;
+    }
+  }
+
+  /**
+   * Installs one set of focus listeners on a container marked with the `input-mask-scope`
+   * attribute. Masks inside the scope only create their IMask instance while their field has focus.
+   */
+  static installScope(container) {
+    if (container._inputMaskScope) {
+      return;
+    }
+    const onFocusIn = e => {
+      const mask = InputMask._findMask(e, container);
+      if (mask) {
+        mask._activate();
+      }
+    };
+    const onFocusOut = e => {
+      const mask = InputMask._findMask(e, container);
+      if (mask && !(mask.parentElement && mask.parentElement.contains(e.relatedTarget))) {
+        mask._deactivate();
+      }
+    };
+    container.addEventListener('focusin', onFocusIn);
+    container.addEventListener('focusout', onFocusOut);
+    container._inputMaskScope = { onFocusIn, onFocusOut };
+  }
+
+  static uninstallScope(container) {
+    const scope = container._inputMaskScope;
+    if (scope) {
+      container.removeEventListener('focusin', scope.onFocusIn);
+      container.removeEventListener('focusout', scope.onFocusOut);
+      delete container._inputMaskScope;
+    }
+  }
+
+  /** Finds the input-mask of the field a focus event belongs to */
+  static _findMask(event, container) {
+    for (const node of event.composedPath()) {
+      if (node === container) {
+        break;
+      }
+      const children = node.children || [];
+      for (let i = 0; i < children.length; i++) {
+        if (children[i].localName === InputMask.is) {
+          return children[i];
+        }
+      }
+    }
+    return null;
+  }
+
+  _activate() {
+    if (!IMask) {
+      InputMask._loadIMask().then(() => this.isConnected && this._activate(), () => {
+        // already logged, the next focus retries
+      });
+    } else if (!this.imask && this._hasOptions()) {
+      this._initImask();
+    }
+  }
+
+  _deactivate() {
+    this._cleanUp();
+  }
+
+  /** Value of the input the mask applies to */
+  _inputValue() {
+    const parent = this.parentElement;
+    if (!parent) {
+      return '';
+    }
+    const input = parent.inputElement || parent.querySelector('input');
+    return input ? input.value : '';
+  }
+
+  /** Whether values can be resolved without an IMask instance bound to the input */
+  _canResolve() {
+    return !!IMask && this._optionsAvailable();
+  }
+
+  /** Resolves a value without binding an IMask instance to the input */
+  _resolve(value) {
+    const masked = IMask.createMask(this._getIMaskOptions());
+    masked.resolve(value || '');
+    return masked;
+  }
   
   /** Initialize imask property */
   _initImask(){
+	const start = this.reportMetrics ? performance.now() : 0;
 	this._parentElement = this.parentElement;
 	if (['VAADIN-TEXT-FIELD', 'VAADIN-TEXT-AREA'].includes(this.parentElement.tagName.toUpperCase())) {
-	  this.imask = new IMask(this.parentElement.inputElement, this._generateIMaskOptions(JSON.parse(this.options)));  
+	  this.imask = new IMask(this.parentElement.inputElement, this._getIMaskOptions());  
 	  this._boundHandleUnmaskedValueChange = this._handleUnmaskedValueChange.bind(this);
 	  this._parentElement.addEventListener("change", this._boundHandleUnmaskedValueChange);
 	  
@@ -51,37 +229,159 @@ class InputMask extends LitElement {
   
 	} else {
 	  const el = this.parentElement.querySelector('input');
-	  this.imask = new IMask(el, this._generateIMaskOptions(JSON.parse(this.options)));
+	  this.imask = new IMask(el, this._getIMaskOptions());
 	  this._boundHandleInputMaskUnmaskedValueChanged = this._handleInputMaskUnmaskedValueChanged.bind(this);
 	  this._parentElement.addEventListener("value-changed", this._boundHandleInputMaskUnmaskedValueChanged);  
 	} 
 	this._boundHandleKeyEvent = this._handleKeyEvent.bind(this);
 	this._parentElement.addEventListener("keydown", this._boundHandleKeyEvent);  
+
+	this._boundHandleAccept = this._handleAccept.bind(this);
+	this.imask.on("accept", this._boundHandleAccept);
+	this._boundHandleBlur = this._handleBlur.bind(this);
+	this._parentElement.addEventListener("focusout", this._boundHandleBlur);
+	if (this.reportMetrics) {
+	  const metrics = this._getMetrics();
+	  metrics.inits++;
+	  metrics.initTime += performance.now() - start;
+	  if (!this._initReported) {
+	    // fields that are never focused would otherwise never report their initialization
+	    this._initReported = true;
+	    this._reportMetrics();
+	  }
+	}
+  }
+
+  _getMetrics() {
+    return this._metrics || (this._metrics = { inits: 0, initTime: 0, keystrokes: 0, keystrokeTime: 0 });
+  }
+
+  /** Sends the timings collected since the last report to the server */
+  _reportMetrics() {
+    const metrics = this._metrics;
+    if (metrics && (metrics.inits || metrics.keystrokes)) {
+      this._metrics = undefined;
+      this.dispatchEvent(new CustomEvent("input-mask-metrics", { detail: metrics }));
+    }
   }
   
+  /** Loads the IMask library once per page. A failed load is retried by the next caller. */
+  static _loadIMask() {
+    if (!imaskLoading) {
+      imaskLoading = import('imask').then(module => {
+        IMask = module.default;
+        return IMask;
+      }).catch(e => {
+        imaskLoading = undefined;
+        console.error('input-mask: loading imask failed', e);
+        throw e;
+      });
+    }
+    return imaskLoading;
+  }
+
   connectedCallback() {
     super.connectedCallback();
-    if (this.options && !this.imask) {
+    if (this._keepAliveTimer) {
+      clearTimeout(this._keepAliveTimer);
+      this._keepAliveTimer = undefined;
+      if (this.imask && this.parentElement !== this._parentElement) {
+        // moved to another field, the kept instance is bound to the old input
+        this._cleanUp();
+      }
+    }
+    this._scope = this.closest('[input-mask-scope]');
+    if (IMask) {
+      this._connect();
+    } else {
+      InputMask._loadIMask().then(() => this.isConnected && this._connect(), () => {
+        // already logged, the next connect retries
+      });
+    }
+  }
+
+  _connect() {
+    if (this.imask) {
+      return;
+    }
+    if (this._scope || this.initOnFocus) {
+      if (!this._scope) {
+        this._awaitFocus();
+      }
+      this._formatDeferred();
+    } else if (this._hasOptions()) {
 	  this._initImask();
     }
   }
 
   disconnectedCallback() {
     super.disconnectedCallback();
-    this._cleanUp();    
+    if (this.definition && InputMask._pending[this.definition]) {
+      InputMask._pending[this.definition].delete(this);
+    }
+    this._stopAwaitingFocus();
+    if (this.reportMetrics) {
+      this._reportMetrics();
+    }
+    if (this.keepAlive > 0 && this.imask) {
+      // keep the instance for a reconnect of the same element, e.g. when a grid editor moves it
+      this._keepAliveTimer = setTimeout(() => {
+        this._keepAliveTimer = undefined;
+        this._cleanUp();
+      }, this.keepAlive);
+    } else {
+      this._cleanUp();
+    }
+  }
+
+  /**
+   * Defers the creation of the IMask instance until the field first gets focus or input. Until
+   * then values set from the server are formatted without binding IMask to the input.
+   */
+  _awaitFocus() {
+    if (this._boundHandleFirstFocus || !this.parentElement) {
+      return;
+    }
+    this._focusReceived = false;
+    this._focusTarget = this.parentElement;
+    this._boundHandleFirstFocus = () => {
+      this._stopAwaitingFocus();
+      // the definition may still be on its way, in which case it initializes IMask when ready
+      this._focusReceived = true;
+      this._activate();
+    };
+    this._focusTarget.addEventListener("focusin", this._boundHandleFirstFocus);
+    this._focusTarget.addEventListener("input", this._boundHandleFirstFocus);
+  }
+
+  _stopAwaitingFocus() {
+    if (this._boundHandleFirstFocus) {
+      this._focusTarget.removeEventListener("focusin", this._boundHandleFirstFocus);
+      this._focusTarget.removeEventListener("input", this._boundHandleFirstFocus);
+      this._boundHandleFirstFocus = undefined;
+      this._focusTarget = undefined;
+    }
   }
   
   _cleanUp() {
 	if (this.imask) {
 	  this._parentElement.removeEventListener("change", this._boundHandleUnmaskedValueChange);
+	  if (this._parentElement.inputElement) {
+	    this._parentElement.inputElement.removeEventListener("change", this._boundHandleInputValueChange);
+	  }
 	  this._parentElement.removeEventListener("value-changed", this._boundHandleInputMaskUnmaskedValueChanged);  
 	  this._parentElement.removeEventListener("keydown", this._boundHandleKeyEvent);
+	  this._parentElement.removeEventListener("focusout", this._boundHandleBlur);
+	  this.imask.off("accept", this._boundHandleAccept);
 	  this.imask.destroy();
 	  this.imask = undefined;
 	}
   }
   
   _handleKeyEvent(ev) {
+    if (this.reportMetrics) {
+      this._keyStart = performance.now();
+    }
     const spaceBar = ev.key == " " || ev.code == "Space" || ev.keyCode == 32;
     const selectAll = ev.target.selectionEnd > ev.target.selectionStart && ev.target.selectionEnd == ev.target.value.length;
     if (spaceBar && selectAll) {
@@ -107,12 +407,46 @@ class InputMask extends LitElement {
   
   /** Handle imask's unmasked value */
   _handleUnmaskedValueChange(){
-	const event = new CustomEvent("unmasked-value-changed", {
-	    detail: this.imask.unmaskedValue,
+	this._dispatchUnmaskedValueEvent("unmasked-value-changed");
+  }
+
+  /**
+   * Fired on every accepted keystroke. The server only listens to it in eager, lazy and timeout
+   * value change modes, debouncing or throttling it on the client.
+   */
+  _handleAccept() {
+	if (this._keyStart) {
+	  const metrics = this._getMetrics();
+	  metrics.keystrokes++;
+	  metrics.keystrokeTime += performance.now() - this._keyStart;
+	  this._keyStart = 0;
+	}
+	this._dispatchUnmaskedValueEvent("unmasked-value-input");
+  }
+
+  /** Fired when focus leaves the field, used by the on-blur value change mode */
+  _handleBlur(ev) {
+	if (!this._parentElement.contains(ev.relatedTarget)) {
+	  this._dispatchUnmaskedValueEvent("unmasked-value-blur");
+	  if (this.reportMetrics) {
+	    this._reportMetrics();
+	  }
+	}
+  }
+
+  _dispatchUnmaskedValueEvent(type) {
+	const unmaskedValue = this.getUnmaskedValue();
+	const event = new CustomEvent(type, {
+	    detail: unmaskedValue,
 	    composed: true,
 	    cancelable: true,
 	    bubbles: true
 	});
+	// the masked value and completeness travel with the event (MaskedValueChangeEvent on the
+	// server), so listeners need no getMaskedValue() round trip
+	event.maskedValue = this.getMaskedValue();
+	event.unmaskedValue = unmaskedValue;
+	event.complete = this.isComplete();
 	this.dispatchEvent(event);	
   }
 
@@ -123,14 +457,21 @@ class InputMask extends LitElement {
 
     this.options = newOptions;
     this._cleanUp();
-	this._initImask();
+	this._activate();
   }
   
   _generateIMaskOptions(maskOptions) {
     const result = {};
     maskOptions.forEach(opt => {
-        if (opt.eval) {
-          eval(`result.${opt.key} = ${opt.value}`);
+        if (opt.key === 'datePattern') {
+          // only used by the server
+          return;
+        }
+        if (opt.function || opt.eval) {
+          result[opt.key] = this._resolveFunction(opt);
+        } else if (opt.key === 'mask' && Array.isArray(opt.value)) {
+          // dynamic mask: every candidate carries its own options
+          result.mask = opt.value.map(candidate => this._generateIMaskOptions(candidate.value));
         } else if (opt.key === 'blocks') {
           const blocks = {};
           opt.value.forEach(block => blocks[block.key] = this._parseBlock(block.value));
@@ -145,8 +486,8 @@ class InputMask extends LitElement {
   _parseBlock(block) {
     const result = {};
     block.forEach(item => {
-        if (item.eval) {
-          eval(`result.${item.key} = ${item.value}`);
+        if (item.function || item.eval) {
+          result[item.key] = this._resolveFunction(item);
         } else {
           result[item.key] = item.value;
         }
@@ -154,20 +495,82 @@ class InputMask extends LitElement {
     return result;
   }
 
+  /**
+   * Resolves a function option from the registry. Evaluated options not matching a registered
+   * name are still supported, but are compiled with eval.
+   */
+  _resolveFunction(opt) {
+    if (Object.prototype.hasOwnProperty.call(InputMask._functions, opt.value)) {
+      return InputMask._functions[opt.value];
+    }
+    if (Object.prototype.hasOwnProperty.call(InputMask._imaskFunctions, opt.value)) {
+      return InputMask._imaskFunctions[opt.value](IMask);
+    }
+    if (opt.function) {
+      throw new Error(`input-mask: function '${opt.value}' is not registered`);
+    }
+    return eval(`(${opt.value})`);
+  }
+
+  /**
+   * Registers a named function (or any other value) that options created with
+   * `InputMaskOption.function(key, name)` can refer to.
+   */
+  static registerFunction(name, fn) {
+    InputMask._functions[name] = fn;
+  }
+
   getUnmaskedValue() {
-    return this.imask ? this.imask.unmaskedValue : "";
+    if (this.imask) {
+      return this.imask.unmaskedValue;
+    }
+    return this._canResolve() ? this._resolve(this._inputValue()).unmaskedValue : "";
   }
 
   getMaskedValue() {
-    return this.imask ? this.imask.value : "";
+    if (this.imask) {
+      return this.imask.value;
+    }
+    return this._canResolve() ? this._resolve(this._inputValue()).value : "";
+  }
+
+  isComplete() {
+    if (this.imask) {
+      return this.imask.masked.isComplete;
+    }
+    return this._canResolve() ? this._resolve(this._inputValue()).isComplete : false;
   }
  
   setValue(value){
 	if(this.imask) {
       this.imask.value = value;
+    } else if ((this._scope || this.initOnFocus) && this.parentElement && this._canResolve()) {
+      // not focused yet: format the value without creating an IMask instance
+      this.parentElement.value = this._resolve(value).value;
     }
   }
   
 }
 
+/** Named functions referenced by options, see registerFunction */
+InputMask._functions = {
+  'uppercase': str => str.toUpperCase(),
+  'lowercase': str => str.toLowerCase(),
+  'digitsOnly': str => str.replace(/\D/g, ''),
+  'Number': Number,
+  'Date': Date
+};
+
+/** Named functions provided by the IMask library, looked up once it is loaded */
+InputMask._imaskFunctions = {
+  'IMask.MaskedRange': imask => imask.MaskedRange,
+  'IMask.MaskedDate': imask => imask.MaskedDate,
+  'IMask.MaskedEnum': imask => imask.MaskedEnum
+};
+
+/** Mask definitions registered by the server, by id */
+InputMask._definitions = {};
+/** Elements waiting for their definition to be registered, by definition id */
+InputMask._pending = {};
+
 window.customElements.define(InputMask.is, InputMask);
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.overwrite;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.vaadin.flow.data.binder.ValueContext;
+import com.vaadin.flow.data.converter.Converter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.Test;
+
+public class DateMaskTest {
+
+	private static final DateMask DATE = (DateMask) InputMaskSpec.date("MM/dd/yyyy", overwrite(true)).getEngine();
+
+	@Test
+	public void plans_areBounded() {
+		for (int i = 0; i < DateMask.MAX_PLANS * 2; i++) {
+			DateMask.options("/".repeat(i) + "dd.MM");
+		}
+
+		assertTrue(DateMask.cachedPlans() <= DateMask.MAX_PLANS);
+	}
+
+	@Test
+	public void mask_usesRangeBlocks() {
+		assertEquals("12/24/2023", DATE.mask("12242023"));
+		assertEquals("12/2", DATE.mask("122"));
+		assertEquals("12242023", DATE.unmask("12/24/2023"));
+		assertFalse(DATE.accepts("13"));
+	}
+
+	@Test
+	public void isComplete_checksCalendar() {
+		assertTrue(DATE.isComplete("02/29/2024"));
+		assertFalse(DATE.isComplete("02/29/2023"));
+		assertFalse(DATE.isComplete("04/31/2023"));
+		assertFalse(DATE.isComplete("04/3"));
+	}
+
+	@Test
+	public void toLocalDate_readsFieldOffsets() {
+		assertEquals(LocalDate.of(2023, 12, 24), DATE.toLocalDate("12/24/2023"));
+		assertEquals(LocalDate.of(2023, 12, 24), DATE.toLocalDate("12242023"));
+		assertNull(DATE.toLocalDate("02/30/2023"));
+		assertNull(DATE.toLocalDate("12-24-2023"));
+		assertNull(DATE.toLocalDate("12/2"));
+		assertEquals("01/02/2003", DATE.format(LocalDate.of(2003, 1, 2)));
+	}
+
+	@Test
+	public void dateTime() {
+		DateMask mask = (DateMask) InputMaskSpec.date("dd.MM.yyyy HH:mm").getEngine();
+
+		assertEquals(LocalDateTime.of(2023, 12, 24, 18, 30), mask.toLocalDateTime("24.12.2023 18:30"));
+		assertNull(mask.toLocalDateTime("24.12.2023 24:30"));
+		assertEquals("24.12.2023 18:30", mask.format(LocalDateTime.of(2023, 12, 24, 18, 30, 15)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedPattern_isRejected() {
+		InputMaskSpec.date("MMM d, yyyy");
+	}
+
+	@Test
+	public void converter_reportsInvalidDates() {
+		Converter<String, LocalDate> converter = DATE.toLocalDateConverter("Invalid date");
+		ValueContext context = new ValueContext();
+
+		assertEquals(LocalDate.of(2024, 2, 29), converter.convertToModel("02/29/2024", context).getOrThrow(IllegalStateException::new));
+		assertTrue(converter.convertToModel("02/29/2023", context).isError());
+		assertEquals("02/29/2024", converter.convertToPresentation(LocalDate.of(2024, 2, 29), context));
+	}
+}
@@ -0,0 +1,53 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.candidate;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.toUppercase;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DynamicMaskTest {
+
+	private static final InputMaskSpec PHONE_OR_VAT = InputMaskSpec.dynamic(candidate("(000) 000-0000"),
+			candidate("aa000000000", toUppercase()));
+
+	@Test
+	public void spec_compilesDynamicMask() {
+		assertTrue(PHONE_OR_VAT.getEngine() instanceof DynamicMask);
+		assertTrue(PHONE_OR_VAT.getEngine().isSupported());
+		assertEquals(2, ((DynamicMask) PHONE_OR_VAT.getEngine()).getCandidates().size());
+	}
+
+	@Test
+	public void select_dispatchesOnFirstChar() {
+		DynamicMask mask = (DynamicMask) PHONE_OR_VAT.getEngine();
+
+		assertEquals("(000) 000-0000", mask.select("5551234567").getPattern());
+		assertEquals("(000) 000-0000", mask.select("(555) 123-4567").getPattern());
+		assertEquals("aa000000000", mask.select("de123456789").getPattern());
+		assertSame(mask.getCandidates().get(0), mask.select(""));
+	}
+
+	@Test
+	public void resolve_usesSelectedCandidate() {
+		MaskEngine mask = PHONE_OR_VAT.getEngine();
+
+		assertEquals("(555) 123-4567", mask.mask("5551234567"));
+		assertEquals("DE123456789", mask.mask("de123456789"));
+		assertEquals("5551234567", mask.unmask("(555) 123-4567"));
+		assertTrue(mask.isComplete("DE123456789"));
+		assertFalse(mask.isComplete("DE1234"));
+	}
+
+	@Test
+	public void firstAcceptingCandidate_wins() {
+		MaskEngine mask = InputMaskSpec.dynamic(candidate("00-00"), candidate("00000")).getEngine();
+
+		assertEquals("12-34", mask.mask("1234"));
+		assertEquals("12345", mask.mask("12345"));
+		assertTrue(mask.accepts("12345"));
+	}
+}
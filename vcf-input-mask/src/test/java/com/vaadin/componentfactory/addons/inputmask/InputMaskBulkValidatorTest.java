@@ -0,0 +1,78 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.candidate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+public class InputMaskBulkValidatorTest {
+
+	private static final InputMaskSpec PHONE = InputMaskSpec.of("(000) 000-0000");
+
+	@Test
+	public void validateAll_reportsFlagsPerRecord() {
+		InputMaskBulkValidator.Results results = InputMaskBulkValidator.of(PHONE)
+				.validateAll(Arrays.asList("5551234567", "555123", "", null, "555x1234567"), Runnable::run).join();
+
+		assertEquals(5, results.size());
+		assertTrue(results.isComplete(0) && results.isAccepted(0) && results.isValid(0));
+		assertTrue(results.isAccepted(1));
+		assertFalse(results.isComplete(1) || results.isValid(1));
+		assertTrue(results.isEmpty(2) && results.isValid(2) && results.isEmpty(3));
+		assertFalse(results.isAccepted(4) || results.isValid(4));
+		assertEquals(2, results.getInvalidCount());
+	}
+
+	@Test
+	public void validateAll_inParallelBatches_matchesEngine() {
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			values.add(Long.toString(5550000000L + i * 7919L % 100_000_000L).substring(0, 5 + i % 6));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			InputMaskBulkValidator.Results results = InputMaskBulkValidator.of(PHONE).withBatchSize(500)
+					.withParallelism(8).validateAll(values, executor).join();
+
+			assertEquals(values.size(), results.size());
+			for (int i = 0; i < values.size(); i++) {
+				assertEquals(InputMaskValidator.isValid(PHONE, values.get(i)), results.isValid(i));
+				assertEquals(PHONE.getEngine().isComplete(values.get(i)), results.isComplete(i));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void validateAll_emptyList() {
+		assertEquals(0, InputMaskBulkValidator.of(PHONE).validateAll(Collections.emptyList()).join().size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void unsupportedMask_isRejected() {
+		InputMaskBulkValidator.of(InputMaskSpec.of("/^\\d+$/", true));
+	}
+
+	@Test
+	public void spec_isNotChangedByCallerArrays() {
+		InputMaskOption[] candidates = { candidate("(000) 000-0000"), candidate("aa000000000") };
+		InputMaskSpecCache cache = new InputMaskSpecCache(8);
+		InputMaskSpec spec = cache.get(Collections.singletonList(InputMaskOption.dynamic(candidates)));
+		candidates[1] = candidate("0000");
+
+		assertNotSame(candidates, spec.getOptions().get(0).getValue());
+		assertEquals("aa000000000", ((DynamicMask) spec.getEngine()).getCandidates().get(1).getPattern());
+		assertEquals(InputMaskOption.dynamic(candidate("(000) 000-0000"), candidate("aa000000000")),
+				spec.getOptions().get(0));
+	}
+}
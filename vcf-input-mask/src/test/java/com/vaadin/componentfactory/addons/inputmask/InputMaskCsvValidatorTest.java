@@ -0,0 +1,138 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class InputMaskCsvValidatorTest {
+
+	private static final InputMaskSpec PHONE = InputMaskSpec.of("(000) 000-0000");
+
+	private static final InputMaskSpec ID = InputMaskSpec.of("aa-000", InputMaskOption.toUppercase());
+
+	private final List<String> errors = new ArrayList<>();
+
+	@Test
+	public void validate_normalizesCheckedColumns() throws IOException {
+		String input = "name,phone,id\r\n" //
+				+ "\"Doe, John\",(555) 123-4567,ab-123\r\n" //
+				+ "Jane,555123,xy123\r\n" //
+				+ "\"Smith \"\"Jr\"\"\",,ab-12x";
+		InputMaskCsvValidator validator = InputMaskCsvValidator.create().withHeader(true).column(1, PHONE).column(2,
+				ID);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		InputMaskCsvValidator.Report report = validate(validator, input, output);
+
+		assertEquals("name,phone,id\r\n" //
+				+ "\"Doe, John\",5551234567,AB123\r\n" //
+				+ "Jane,555123,XY123\r\n" //
+				+ "\"Smith \"\"Jr\"\"\",,ab-12x", output.toString(StandardCharsets.UTF_8.name()));
+		assertEquals(4, report.getRecords());
+		assertEquals(5, report.getCheckedValues());
+		assertEquals(2, report.getInvalidValues());
+		assertEquals("[3:1:555123:INCOMPLETE, 4:2:ab-12x:REJECTED]", errors.toString());
+	}
+
+	@Test
+	public void validate_lineDelimitedInput_smallBuffers() throws IOException {
+		StringBuilder input = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			String digits = Long.toString(5550000000L + i);
+			input.append(i % 100 == 0 ? "\u00e9" + digits : PHONE.getEngine().mask(digits)).append('\n');
+			expected.append(i % 100 == 0 ? "\u00e9" + digits : digits).append('\n');
+		}
+		InputMaskCsvValidator validator = InputMaskCsvValidator.create().withBufferSize(16).column(0, PHONE);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		InputMaskCsvValidator.Report report = validate(validator, input.toString(), output);
+
+		assertEquals(expected.toString(), output.toString(StandardCharsets.UTF_8.name()));
+		assertEquals(1000, report.getRecords());
+		assertEquals(10, report.getInvalidValues());
+	}
+
+	@Test
+	public void validate_streamsLargeInputWithoutOutput() throws IOException {
+		int rows = 200_000;
+		byte[] row = "x,(555) 123-4567\n".getBytes(StandardCharsets.UTF_8);
+		ReadableByteChannel input = new ReadableByteChannel() {
+			private int position;
+
+			@Override
+			public int read(ByteBuffer target) {
+				if (position == rows * row.length) {
+					return -1;
+				}
+				int count = 0;
+				for (; position < rows * row.length && target.hasRemaining(); position++, count++) {
+					target.put(row[position % row.length]);
+				}
+				return count;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		InputMaskCsvValidator.Report report = InputMaskCsvValidator.create().column(1, PHONE).validate(input,
+				(WritableByteChannel) null, null);
+
+		assertEquals(rows, report.getRecords());
+		assertEquals(rows, report.getCheckedValues());
+		assertEquals(0, report.getInvalidValues());
+	}
+
+	@Test(expected = IOException.class)
+	public void validate_failsOnTooLongField() throws IOException {
+		validate(InputMaskCsvValidator.create().withMaxFieldLength(8).column(0, PHONE), "(555) 123-4567\n",
+				new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IOException.class)
+	public void validate_failsOnUnclosedQuote() throws IOException {
+		validate(InputMaskCsvValidator.create().column(1, PHONE), "x,(555) 123-4567\n\"y,(555) 123-4567\n",
+				new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void validate_copiesLineTerminators() throws IOException {
+		String input = "(555) 123-4567\r(555) 123-4568\r\n(555) 123-4569\n";
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		InputMaskCsvValidator.Report report = validate(InputMaskCsvValidator.create().column(0, PHONE), input,
+				output);
+
+		assertEquals("5551234567\r5551234568\r\n5551234569\n", output.toString(StandardCharsets.UTF_8.name()));
+		assertEquals(3, report.getRecords());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void unsupportedMask_isRejected() {
+		InputMaskCsvValidator.create().column(0, InputMaskSpec.of("/^\\d+$/", true));
+	}
+
+	private InputMaskCsvValidator.Report validate(InputMaskCsvValidator validator, String input,
+			ByteArrayOutputStream output) throws IOException {
+		return validator.validate(Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8))),
+				Channels.newChannel(output), (record, column, value, violation) -> errors
+						.add(record + ":" + column + ":" + value + ":" + violation));
+	}
+}
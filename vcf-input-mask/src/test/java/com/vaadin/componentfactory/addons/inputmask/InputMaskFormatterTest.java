@@ -0,0 +1,71 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class InputMaskFormatterTest {
+
+	private final InputMaskFormatter formatter = InputMaskFormatter.of(new InputMask("(000) 000-0000"));
+
+	@Test
+	public void format_stream() {
+		assertEquals(Arrays.asList("(111) 222-3333", "(444) 555-6666"),
+				formatter.format(Stream.of("1112223333", "4445556666")).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void formatTo_reusesBuffer() {
+		List<String> result = new ArrayList<>();
+
+		formatter.formatTo(Arrays.asList("1112223333", "444"), value -> result.add(value.toString()));
+		formatter.formatTo(new long[] { 4445556666L }, value -> result.add(value.toString()));
+
+		assertEquals(Arrays.asList("(111) 222-3333", "(444", "(444) 555-6666"), result);
+	}
+
+	@Test
+	public void formatTo_nestedFormatDoesNotClobberOuterBuffer() {
+		List<String> result = new ArrayList<>();
+
+		formatter.formatTo(Arrays.asList("1112223333", "4445556666"), value -> {
+			String nested = formatter.format("999");
+			result.add(value.toString() + " " + nested);
+		});
+
+		assertEquals(Arrays.asList("(111) 222-3333 (999", "(444) 555-6666 (999"), result);
+	}
+
+	@Test
+	public void format_oversizedValueIsNotRetained() {
+		InputMaskFormatter anything = InputMaskFormatter.of("*".repeat(10_000));
+
+		anything.format("x".repeat(10_000));
+
+		assertTrue(InputMaskFormatter.retainedCapacity() <= InputMaskFormatter.MAX_RETAINED_CAPACITY);
+	}
+
+	@Test
+	public void formatAll_parallel() {
+		List<String> values = IntStream.range(0, 10_000).mapToObj(i -> String.format("%010d", i))
+				.collect(Collectors.toList());
+
+		List<String> formatted = formatter.formatAll(values, true);
+
+		assertEquals(values.size(), formatted.size());
+		assertEquals("(000) 000-0000", formatted.get(0));
+		assertEquals("(000) 000-9999", formatted.get(9999));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void evaluatedMask_isRejected() {
+		InputMaskFormatter.of(new InputMask("/^\\d+$/", true));
+	}
+}
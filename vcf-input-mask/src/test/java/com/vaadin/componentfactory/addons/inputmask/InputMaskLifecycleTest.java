@@ -0,0 +1,210 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.vaadin.flow.component.AbstractField.ComponentValueChangeEvent;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.server.VaadinSession;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import net.jcip.annotations.NotThreadSafe;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs many extend/remove/attach/detach cycles and checks that neither the fields nor the masks
+ * accumulate listeners or retained heap, and that discarded fields can be garbage collected.
+ */
+@NotThreadSafe
+@SuppressWarnings("serial")
+public class InputMaskLifecycleTest {
+
+	private static final int CYCLES = 10_000;
+
+	/** Less than half of what one leaked listener per cycle retains over 10k cycles. */
+	private static final long MAX_RETAINED_BYTES = 128 * 1024;
+
+	private UI ui;
+
+	@Before
+	public void setUp() {
+		ui = new UI();
+		ui.getInternals().setSession(new VaadinSession(null) {
+			@Override
+			public boolean hasLock() {
+				return true;
+			}
+		});
+		UI.setCurrent(ui);
+	}
+
+	@After
+	public void tearDown() {
+		UI.setCurrent(null);
+	}
+
+	@Test
+	public void extendDetachCycles_keepListenerCountFlat() {
+		TextField field = new TextField();
+		InputMask mask = new InputMask("(000) 000-0000");
+		int[] baseline = listenerCounts(field);
+		for (int i = 0; i < CYCLES; i++) {
+			mask.extend(field);
+			assertListeners(field, baseline, 1, 1, 0);
+			ui.add(field);
+			flush();
+			assertListeners(field, baseline, 1, 1, 1);
+			ui.remove(field);
+			flush();
+			assertListeners(field, baseline, 0, 0, 0);
+		}
+		assertNull(mask.getElement().getParent());
+	}
+
+	@Test
+	public void repeatedExtendAndRemove_keepListenerCountFlat() {
+		TextField field = new TextField();
+		InputMask mask = new InputMask("(000) 000-0000");
+		int[] baseline = listenerCounts(field);
+		for (int i = 0; i < CYCLES; i++) {
+			mask.extend(field);
+			mask.extend(field);
+			assertListeners(field, baseline, 1, 1, 0);
+			mask.remove();
+			assertListeners(field, baseline, 0, 0, 0);
+		}
+	}
+
+	@Test
+	public void keepAliveCycles_keepListenerCountFlat() {
+		TextField field = new TextField();
+		InputMask mask = new InputMask("(000) 000-0000");
+		mask.setKeepAliveTimeout(5000);
+		int[] baseline = listenerCounts(field);
+		mask.extend(field);
+		for (int i = 0; i < CYCLES; i++) {
+			ui.add(field);
+			flush();
+			assertListeners(field, baseline, 1, 1, 1);
+			ui.remove(field);
+			flush();
+			assertListeners(field, baseline, 1, 1, 1);
+		}
+		assertEquals(field.getElement(), mask.getElement().getParent());
+		mask.remove();
+		assertListeners(field, baseline, 0, 0, 0);
+	}
+
+	@Test
+	public void extendDetachCycles_keepRetainedHeapFlat() {
+		TextField field = new TextField();
+		InputMask mask = new InputMask("(000) 000-0000");
+		// warm up, so lazily created Flow and JDK structures are not counted as retained
+		extendAttachDetach(mask, field, CYCLES / 10);
+		long before = usedHeapAfterGc();
+		extendAttachDetach(mask, field, CYCLES);
+		long retained = usedHeapAfterGc() - before;
+
+		assertTrue("retained " + retained + " bytes", retained < MAX_RETAINED_BYTES);
+	}
+
+	@Test
+	public void extendToAnotherField_releasesPreviousField() {
+		InputMask mask = new InputMask("(000) 000-0000");
+		TextField first = new TextField();
+		mask.extend(first);
+		WeakReference<TextField> firstRef = new WeakReference<>(first);
+		first = null;
+		for (int i = 0; i < CYCLES; i++) {
+			TextField field = new TextField();
+			mask.extend(field);
+			ui.add(field);
+			flush();
+			ui.remove(field);
+			flush();
+		}
+		assertCollected(firstRef);
+		assertNull(mask.getElement().getParent());
+	}
+
+	@Test
+	public void removedField_isCollectable() {
+		TextField field = new TextField();
+		InputMask mask = new InputMask("(000) 000-0000");
+		mask.setKeepAliveTimeout(5000);
+		mask.extend(field);
+		ui.add(field);
+		flush();
+		ui.remove(field);
+		flush();
+		mask.remove();
+		// the field stays a dirty node of the UI until the next response
+		flush();
+		WeakReference<TextField> fieldRef = new WeakReference<>(field);
+		field = null;
+		assertCollected(fieldRef);
+	}
+
+	private void extendAttachDetach(InputMask mask, TextField field, int cycles) {
+		for (int i = 0; i < cycles; i++) {
+			mask.extend(field);
+			ui.add(field);
+			flush();
+			ui.remove(field);
+			flush();
+		}
+	}
+
+	private static long usedHeapAfterGc() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+	private void flush() {
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+		ui.getInternals().getStateTree().collectChanges(change -> {
+		});
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+	}
+
+	private static int[] listenerCounts(Component field) {
+		return new int[] { ComponentUtil.getListeners(field, AttachEvent.class).size(),
+				ComponentUtil.getListeners(field, DetachEvent.class).size(),
+				ComponentUtil.getListeners(field, ComponentValueChangeEvent.class).size() };
+	}
+
+	/**
+	 * Asserts the exact number of attach, detach and value change listeners added to the field.
+	 */
+	private static void assertListeners(Component field, int[] baseline, int... added) {
+		int[] counts = listenerCounts(field);
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals("listeners: " + Arrays.toString(counts), baseline[i] + added[i], counts[i]);
+		}
+	}
+
+	private static void assertCollected(WeakReference<?> ref) {
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		assertNull(ref.get());
+	}
+}
@@ -0,0 +1,117 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.textfield.TextField;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Function;
+import org.junit.Test;
+
+public class InputMaskSerializationTest {
+
+	private static final int FIELDS = 50;
+
+	private static final InputMaskSpec PHONE = InputMaskSpec.register("test-phone",
+			InputMaskSpec.dynamic(InputMaskOption.candidate("(000) 000-0000"),
+					InputMaskOption.candidate("+00 000 000 0000", InputMaskOption.lazy(false))));
+
+	private static final InputMaskSpec UNNAMED = InputMaskSpec.dynamic(InputMaskOption.candidate("(000) 000-0000"),
+			InputMaskOption.candidate("+00 000 000 0000", InputMaskOption.lazy(true)));
+
+	@Test
+	public void namedSpec_isWrittenAsName() throws Exception {
+		int named = serialize(PHONE).length;
+		int unnamed = serialize(UNNAMED).length;
+
+		assertTrue(named * 4 < unnamed);
+		assertSame(PHONE, deserialize(serialize(PHONE)));
+		assertSame(UNNAMED, deserialize(serialize(UNNAMED)));
+		assertEquals("test-phone", PHONE.getName());
+		assertNull(UNNAMED.getName());
+	}
+
+	@Test
+	public void register_isIdempotent() {
+		assertSame(PHONE, InputMaskSpec.register("test-phone", PHONE));
+		assertSame(PHONE, InputMaskSpec.named("test-phone"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void register_rejectsOtherDefinitionForName() {
+		InputMaskSpec.register("test-phone", InputMaskSpec.of("000"));
+	}
+
+	@Test(expected = InvalidObjectException.class)
+	public void unknownName_failsDeserialization() throws Exception {
+		byte[] bytes = serialize(InputMaskSpec.register("test-unknown", InputMaskSpec.of("0000-0000")));
+		InputMaskSpec.unregister("test-unknown");
+
+		deserialize(bytes);
+	}
+
+	@Test
+	public void extendedField_isSerializedWithMask() throws Exception {
+		TextField field = new TextField();
+		InputMask mask = new InputMask(PHONE);
+		mask.extend(field);
+
+		Object[] copy = (Object[]) deserialize(serialize(new Object[] { field, mask }));
+		TextField fieldCopy = (TextField) copy[0];
+		InputMask maskCopy = (InputMask) copy[1];
+
+		assertSame(PHONE, maskCopy.getSpec());
+		maskCopy.setInvalid(true);
+		assertTrue(fieldCopy.isInvalid());
+	}
+
+	@Test
+	public void bytesPerMaskedField() throws Exception {
+		int plain = serialize(form(i -> null)).length;
+		int named = serialize(form(i -> PHONE)).length;
+		int unnamed = serialize(form(i -> UNNAMED)).length;
+		int perFieldSpecs = serialize(form(i -> InputMaskSpec.of("(000) 000-" + (1000 + i)))).length;
+
+		// a shared spec is written once per stream, a registered one as its name only
+		assertTrue(named < unnamed);
+		assertTrue(unnamed < perFieldSpecs);
+		assertTrue((named - plain) / FIELDS < 2048);
+		// most of a masked field is the Flow state of the mask element, not its spec
+		assertTrue((perFieldSpecs - named) * 10 < named - plain);
+	}
+
+	private static Div form(Function<Integer, InputMaskSpec> specs) {
+		Div form = new Div();
+		for (int i = 0; i < FIELDS; i++) {
+			TextField field = new TextField();
+			InputMaskSpec spec = specs.apply(i);
+			if (spec != null) {
+				new InputMask(spec).extend(field);
+			}
+			form.add(field);
+		}
+		return form;
+	}
+
+	private static byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+}
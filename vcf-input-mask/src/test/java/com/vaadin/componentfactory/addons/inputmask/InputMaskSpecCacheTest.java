@@ -0,0 +1,106 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.blocks;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.lazy;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.option;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class InputMaskSpecCacheTest {
+
+	@Test
+	public void equalOptions_shareSpec() {
+		InputMaskSpecCache cache = new InputMaskSpecCache(10);
+
+		InputMaskSpec first = cache.get(Arrays.asList(option("mask", "00/00"), lazy(false),
+				blocks(option("YY", option("mask", "00")))));
+		InputMaskSpec second = cache.get(Arrays.asList(option("mask", "00/00"), lazy(false),
+				blocks(option("YY", option("mask", "00")))));
+		InputMaskSpec other = cache.get(Arrays.asList(option("mask", "00/00")));
+
+		assertSame(first, second);
+		assertNotSame(first, other);
+		InputMaskSpecCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(2, stats.getMissCount());
+		assertEquals(2, stats.getSize());
+	}
+
+	@Test
+	public void leastRecentlyUsed_isEvicted() {
+		InputMaskSpecCache cache = new InputMaskSpecCache(2);
+
+		InputMaskSpec a = cache.get(Arrays.asList(option("mask", "0")));
+		cache.get(Arrays.asList(option("mask", "00")));
+		cache.get(Arrays.asList(option("mask", "0")));
+		cache.get(Arrays.asList(option("mask", "000")));
+
+		assertSame(a, cache.get(Arrays.asList(option("mask", "0"))));
+		assertEquals(1, cache.getStats().getEvictionCount());
+		assertEquals(2, cache.getStats().getSize());
+
+		cache.setMaximumSize(1);
+		assertEquals(2, cache.getStats().getEvictionCount());
+	}
+
+	@Test
+	public void evictedSpecInUse_isStillShared() {
+		InputMaskSpecCache cache = new InputMaskSpecCache(1);
+
+		InputMaskSpec inUse = cache.get(Arrays.asList(option("mask", "0")));
+		cache.get(Arrays.asList(option("mask", "00")));
+
+		assertEquals(1, cache.getStats().getEvictionCount());
+		assertSame(inUse, cache.get(Arrays.asList(option("mask", "0"))));
+		assertEquals(2, cache.getStats().getMissCount());
+	}
+
+	@Test
+	public void evictedSpecNotInUse_isCollectable() {
+		InputMaskSpecCache cache = new InputMaskSpecCache(1);
+		WeakReference<InputMaskSpec> unused = new WeakReference<>(cache.get(Arrays.asList(option("mask", "0"))));
+		cache.get(Arrays.asList(option("mask", "00")));
+
+		for (int i = 0; i < 50 && unused.get() != null; i++) {
+			System.gc();
+		}
+
+		assertNull(unused.get());
+	}
+
+	@Test
+	public void inputMasks_pointAtSharedSpec() {
+		InputMask first = new InputMask("(000) 000-0000", lazy(false));
+		InputMask second = new InputMask("(000) 000-0000", lazy(false));
+
+		assertSame(first.getSpec(), second.getSpec());
+	}
+
+	@Test
+	public void inputMask_referencesGivenSpec() {
+		InputMaskSpec spec = InputMaskSpec.of("(000) 000-0000", lazy(false));
+
+		assertSame(spec, new InputMask(spec).getSpec());
+		assertSame(spec, new InputMask("(000) 000-0000", lazy(false)).getSpec());
+	}
+
+	@Test
+	public void optionsJson_isSerializedOnce() throws Exception {
+		InputMaskSpec spec = new InputMask("00-00", lazy(false)).getSpec();
+
+		String json = spec.getOptionsJson();
+
+		assertEquals("[{\"key\":\"mask\",\"value\":\"00-00\",\"eval\":false},"
+				+ "{\"key\":\"lazy\",\"value\":false,\"eval\":false}]", json);
+		assertSame(json, new InputMask("00-00", lazy(false)).getSpec().getOptionsJson());
+		assertTrue(InputMaskSpec.of("aaa", InputMaskOption.toUppercase()).getOptionsJson()
+				.contains("{\"key\":\"prepare\",\"value\":\"uppercase\",\"eval\":false,\"function\":true}"));
+	}
+}
@@ -16,15 +16,35 @@
 package com.vaadin.componentfactory.addons.inputmask;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNotEquals;
 
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.data.binder.Validator;
+import com.vaadin.flow.data.binder.ValueContext;
+import com.vaadin.flow.data.value.ValueChangeMode;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.shared.Registration;
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import net.jcip.annotations.NotThreadSafe;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 @NotThreadSafe
+@SuppressWarnings("serial")
 public class InputMaskTest {
 
 	private UI ui;
@@ -32,11 +52,18 @@ public class InputMaskTest {
 	@Before
 	public void setUp() {
 		ui = new UI();
+		ui.getInternals().setSession(new VaadinSession(null) {
+			@Override
+			public boolean hasLock() {
+				return true;
+			}
+		});
 		UI.setCurrent(ui);
 	}
 
 	@After
 	public void tearDown() {
+		InputMask.setMetrics(null);
 		UI.setCurrent(null);
 	}
 
@@ -52,4 +79,293 @@ public class InputMaskTest {
 		assertEquals("(555)", textField.getValue());
 	}
 
+	@Test
+	public void inputMask_definitionSentOncePerUI() {
+		TextField first = new TextField();
+		TextField second = new TextField();
+		TextField other = new TextField();
+		InputMask firstMask = new InputMask("(000) 000-0000");
+		InputMask secondMask = new InputMask("(000) 000-0000");
+		InputMask otherMask = new InputMask("00000");
+		firstMask.extend(first);
+		secondMask.extend(second);
+		otherMask.extend(other);
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		ui.add(first, second, other);
+
+		String definition = firstMask.getElement().getProperty("definition");
+		assertEquals(definition, secondMask.getElement().getProperty("definition"));
+		assertNotEquals(definition, otherMask.getElement().getProperty("definition"));
+		assertEquals(2, ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+				.filter(invocation -> invocation.getInvocation().getExpression().contains("define(")).count());
+	}
+
+	@Test
+	public void inputMask_definitionsResentWhenUIReattaches() {
+		TextField field = new TextField();
+		InputMask mask = new InputMask("(000) 000-0000");
+		mask.extend(field);
+		ui.add(field);
+		String definition = mask.getElement().getProperty("definition");
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		// e.g. a reload with @PreserveOnRefresh, which starts a new client for the same UI
+		ComponentUtil.fireEvent(ui, new AttachEvent(ui, false));
+
+		List<PendingJavaScriptInvocation> defines = new ArrayList<>();
+		ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+				.filter(invocation -> invocation.getInvocation().getExpression().contains("define(")).forEach(defines::add);
+		assertEquals(1, defines.size());
+		assertEquals(definition, defines.get(0).getInvocation().getParameters().get(1));
+		assertEquals(definition, mask.getElement().getProperty("definition"));
+	}
+
+	@Test
+	public void inputMaskBatch_fetchesAllValuesInOneCall() {
+		Div form = new Div();
+		for (int i = 0; i < 3; i++) {
+			TextField field = new TextField();
+			new InputMask("(000) 000-0000").extend(field);
+			form.add(field);
+		}
+		ui.add(form);
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		InputMaskBatch.fetchValues(form, values -> {
+		});
+
+		List<PendingJavaScriptInvocation> invocations = ui.getInternals().dumpPendingJavaScriptInvocations();
+		assertEquals(1, invocations.size());
+		assertEquals(3, invocations.get(0).getInvocation().getParameters().size());
+	}
+
+	@Test
+	public void inputMaskBatch_reportsEveryDefinition() {
+		List<InputMaskSpec> fetched = new ArrayList<>();
+		InputMask.setMetrics(new InputMaskMetrics() {
+			@Override
+			public void roundTrip(InputMaskSpec mask, RoundTrip type) {
+				if (type == RoundTrip.FETCH_VALUES) {
+					fetched.add(mask);
+				}
+			}
+		});
+		Div form = new Div();
+		InputMask phone = new InputMask("(000) 000-0000");
+		InputMask otherPhone = new InputMask(phone.getSpec());
+		InputMask zip = new InputMask("00000");
+		for (InputMask mask : Arrays.asList(phone, otherPhone, zip)) {
+			TextField field = new TextField();
+			mask.extend(field);
+			form.add(field);
+		}
+		ui.add(form);
+
+		InputMaskBatch.fetchValues(form, values -> {
+		});
+
+		assertEquals(Arrays.asList(phone.getSpec(), zip.getSpec()), fetched);
+	}
+
+	@Test
+	public void inputMaskScope_marksContainerOnce() {
+		Div form = new Div();
+		ui.add(form);
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		Registration registration = InputMaskScope.install(form);
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+		assertEquals("", form.getElement().getAttribute(InputMaskScope.ATTRIBUTE));
+		assertEquals(1, ui.getInternals().dumpPendingJavaScriptInvocations().size());
+
+		registration.remove();
+		assertFalse(form.getElement().hasAttribute(InputMaskScope.ATTRIBUTE));
+	}
+
+	@Test
+	public void inputMask_valueChangeMode() {
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		assertEquals(ValueChangeMode.ON_CHANGE, inputMask.getValueChangeMode());
+
+		inputMask.setValueChangeMode(ValueChangeMode.LAZY);
+		inputMask.setValueChangeTimeout(300);
+
+		assertEquals(ValueChangeMode.LAZY, inputMask.getValueChangeMode());
+		assertEquals(300, inputMask.getValueChangeTimeout());
+		assertTrue(inputMask.getElement().getNode().getFeature(ElementListenerMap.class)
+				.getExpressions(InputMask.INPUT_EVENT).toString().contains("unmaskedValue"));
+	}
+
+	@Test
+	public void inputMask_valuePushesCoalescedPerResponse() {
+		TextField textField = new TextField();
+		new InputMask("(000) 000-0000").extend(textField);
+		ui.add(textField);
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		textField.setValue("1112223333");
+		textField.setValue("4445556666");
+		textField.setValue("7778889999");
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+		assertEquals(1, ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+				.filter(invocation -> invocation.getInvocation().getExpression().contains("setValue")).count());
+	}
+
+	@Test
+	public void inputMask_valuePushFollowsReExtend() {
+		TextField first = new TextField();
+		TextField second = new TextField();
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		inputMask.extend(first);
+		ui.add(first, second);
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		first.setValue("1112223333");
+		inputMask.extend(second);
+		second.setValue("4445556666");
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+		List<PendingJavaScriptInvocation> pushes = new ArrayList<>();
+		ui.getInternals().dumpPendingJavaScriptInvocations().stream()
+				.filter(invocation -> invocation.getInvocation().getExpression().contains("setValue"))
+				.forEach(pushes::add);
+		assertEquals(1, pushes.size());
+		assertEquals(second.getElement(), pushes.get(0).getInvocation().getParameters().get(0));
+	}
+
+	@Test
+	public void inputMask_reportsMetrics() {
+		List<String> events = new ArrayList<>();
+		InputMask.setMetrics(new InputMaskMetrics() {
+			@Override
+			public void roundTrip(InputMaskSpec mask, RoundTrip type) {
+				events.add(type.name());
+			}
+
+			@Override
+			public void attached(InputMaskSpec mask) {
+				events.add("attached");
+			}
+
+			@Override
+			public void definitionSent(InputMaskSpec mask) {
+				events.add("definitionSent");
+			}
+		});
+		TextField textField = new TextField();
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		inputMask.extend(textField);
+		ui.add(textField);
+		inputMask.getUnmaskedValue(value -> {
+		});
+
+		assertEquals(3, events.size());
+		assertTrue(events.containsAll(List.of("attached", "definitionSent", "GET_UNMASKED_VALUE")));
+		assertTrue(inputMask.getElement().getProperty("reportMetrics", false));
+	}
+
+	@Test
+	public void inputMask_initOnFocus() {
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		assertFalse(inputMask.isInitOnFocus());
+
+		inputMask.setInitOnFocus(true);
+
+		assertTrue(inputMask.isInitOnFocus());
+		assertTrue(inputMask.getElement().getProperty("initOnFocus", false));
+	}
+
+	@Test
+	public void inputMask_validatesOnServer() {
+		TextField textField = new TextField();
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		inputMask.extend(textField);
+		Validator<String> validator = inputMask.createValidator("Incomplete");
+
+		assertFalse(validator.apply("(555) 123-4567", new ValueContext()).isError());
+		assertTrue(validator.apply("(555) 123", new ValueContext()).isError());
+		assertFalse(validator.apply("", new ValueContext()).isError());
+
+		textField.setValue("(555) 123");
+		assertFalse(inputMask.validate("Incomplete"));
+		assertTrue(textField.isInvalid());
+		assertEquals("Incomplete", textField.getErrorMessage());
+		textField.setValue("(555) 123-4567");
+		assertTrue(inputMask.validate("Incomplete"));
+		assertFalse(textField.isInvalid());
+	}
+
+	@Test
+	public void inputMask_keepAliveSurvivesDetach() {
+		TextField kept = new TextField();
+		InputMask keptMask = new InputMask("(000) 000-0000");
+		keptMask.setKeepAliveTimeout(5000);
+		keptMask.extend(kept);
+		TextField dropped = new TextField();
+		InputMask droppedMask = new InputMask("(000) 000-0000");
+		droppedMask.extend(dropped);
+		ui.add(kept, dropped);
+
+		ui.remove(kept, dropped);
+		ui.add(kept, dropped);
+
+		assertEquals(5000, keptMask.getKeepAliveTimeout());
+		assertEquals(kept.getElement(), keptMask.getElement().getParent());
+		assertTrue(droppedMask.getElement().getParent() == null);
+	}
+
+	@Test
+	public void inputMask_keepAliveReattachKeepsElement() {
+		List<InputMaskSpec> attaches = new ArrayList<>();
+		InputMask.setMetrics(new InputMaskMetrics() {
+			@Override
+			public void attached(InputMaskSpec mask) {
+				attaches.add(mask);
+			}
+		});
+		TextField field = new TextField();
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		inputMask.setKeepAliveTimeout(5000);
+		inputMask.extend(field);
+		ui.add(field);
+		assertEquals(1, attaches.size());
+
+		ui.remove(field);
+		ui.add(field);
+
+		// attached once with the field, not removed and appended again by the field's attach listener
+		assertEquals(2, attaches.size());
+		assertEquals(1, field.getElement().getChildren()
+				.filter(child -> InputMask.TAG_NAME.equals(child.getTag())).count());
+	}
+
+	@Test
+	public void inputMask_maskedValueChangeEventCarriesBothValues() {
+		TextField textField = new TextField();
+		InputMask inputMask = new InputMask("(000) 000-0000");
+		inputMask.extend(textField);
+		ui.add(textField);
+		List<MaskedValue> values = new ArrayList<>();
+		inputMask.addMaskedValueChangeListener(event -> values.add(event.getValue()));
+		ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+		ui.getInternals().dumpPendingJavaScriptInvocations();
+
+		ElementListenerMap listeners = inputMask.getElement().getNode().getFeature(ElementListenerMap.class);
+		assertTrue(listeners.getExpressions(InputMask.CHANGE_EVENT).containsAll(
+				Arrays.asList("event.maskedValue", "event.unmaskedValue", "event.complete")));
+		JsonObject data = Json.createObject();
+		data.put("event.maskedValue", "(555) 123-4567");
+		data.put("event.unmaskedValue", "5551234567");
+		data.put("event.complete", true);
+		listeners.fireEvent(new DomEvent(inputMask.getElement(), InputMask.CHANGE_EVENT, data));
+
+		assertEquals(1, values.size());
+		assertEquals(new MaskedValue("(555) 123-4567", "5551234567", true), values.get(0));
+		assertTrue(ui.getInternals().dumpPendingJavaScriptInvocations().isEmpty());
+	}
 }
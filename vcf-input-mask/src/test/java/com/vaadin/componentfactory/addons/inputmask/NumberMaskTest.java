@@ -0,0 +1,104 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.max;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.min;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.padFractionalZeros;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.radix;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.scale;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.thousandsSeparator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.vaadin.flow.data.binder.ValueContext;
+import com.vaadin.flow.data.converter.Converter;
+import java.math.BigDecimal;
+import org.junit.Test;
+
+public class NumberMaskTest {
+
+	private static final NumberMask AMOUNT = (NumberMask) InputMaskSpec
+			.number(scale(2), thousandsSeparator(' '), min(0), max(1000000)).getEngine();
+
+	@Test
+	public void mask_groupsDigitsAndNormalizesZeros() {
+		assertEquals("1 234 567,8", AMOUNT.mask("1234567.8"));
+		assertEquals("1 234,56", AMOUNT.mask("1 234,56"));
+		assertEquals("12", AMOUNT.mask("0012"));
+		assertEquals("0,5", AMOUNT.mask(",5"));
+		assertEquals("1234.56", AMOUNT.unmask("1 234,56"));
+		assertEquals("", AMOUNT.mask(""));
+	}
+
+	@Test
+	public void resolve_rejectsExtraDigitsAndOutOfRange() {
+		assertTrue(AMOUNT.accepts("1 234,56"));
+		assertFalse(AMOUNT.accepts("1,234"));
+		assertFalse(AMOUNT.accepts("-5"));
+		assertFalse(AMOUNT.accepts("2000000"));
+		assertTrue(AMOUNT.isComplete("0"));
+		assertFalse(AMOUNT.isComplete(""));
+	}
+
+	@Test
+	public void converts_withoutIntermediateStrings() {
+		assertEquals(123456, AMOUNT.toUnscaledLong("1 234,56"));
+		assertEquals(new BigDecimal("1234.50"), AMOUNT.toBigDecimal("1 234,5"));
+		assertEquals(1234, AMOUNT.toLong("1 234"));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void toLong_rejectsFraction() {
+		AMOUNT.toLong("1,5");
+	}
+
+	@Test
+	public void format_isInverseOfConversion() {
+		assertEquals("1 234,5", AMOUNT.format(new BigDecimal("1234.504")));
+		assertEquals("1 234 567", AMOUNT.format(1234567));
+		NumberMask padded = (NumberMask) InputMaskSpec.number(padFractionalZeros(true)).getEngine();
+		assertEquals("-12,00", padded.format(-12));
+		assertEquals("12,00", padded.mask("12"));
+	}
+
+	@Test
+	public void dotSeparator_isNotTakenAsRadix() {
+		NumberMask euro = (NumberMask) InputMaskSpec.number(scale(2), thousandsSeparator('.'), radix(','))
+				.getEngine();
+		ValueContext context = new ValueContext();
+
+		assertEquals("1.234.567,8", euro.mask("1234567,8"));
+		assertEquals("1.234,56", euro.mask("1.234,56"));
+		assertEquals("1234.56", euro.unmask("1.234,56"));
+		assertTrue(euro.accepts("1.234,56"));
+		assertFalse(euro.accepts("1,234.5"));
+		assertEquals("1.234,5", euro.format(new BigDecimal("1234.5")));
+		assertEquals(123456, euro.toUnscaledLong("1.234,56"));
+		assertEquals(1234, euro.toLong("1.234"));
+		assertEquals(new BigDecimal("1234.56"), euro.toBigDecimalConverter("Invalid")
+				.convertToModel("1.234,56", context).getOrThrow(IllegalStateException::new));
+	}
+
+	@Test
+	public void format_valueBeyondLong() {
+		NumberMask euro = (NumberMask) InputMaskSpec.number(scale(2), thousandsSeparator('.'), radix(','))
+				.getEngine();
+
+		assertEquals("123.456.789.012.345.678.901,5", euro.format(new BigDecimal("123456789012345678901.5")));
+		assertEquals("-123.456.789.012.345.678.901", euro.format(new BigDecimal("-123456789012345678901")));
+		NumberMask padded = (NumberMask) InputMaskSpec.number(padFractionalZeros(true)).getEngine();
+		assertEquals("98765432109876543210,00", padded.format(new BigDecimal("98765432109876543210")));
+	}
+
+	@Test
+	public void converters_reportErrorsAsResults() {
+		Converter<String, BigDecimal> converter = AMOUNT.toBigDecimalConverter("Invalid");
+		ValueContext context = new ValueContext();
+
+		assertEquals(new BigDecimal("1234.56"), converter.convertToModel("1 234,56", context).getOrThrow(IllegalStateException::new));
+		assertTrue(converter.convertToModel("12x", context).isError());
+		assertEquals(null, converter.convertToModel("", context).getOrThrow(IllegalStateException::new));
+		assertEquals("1 234,56", converter.convertToPresentation(new BigDecimal("1234.56"), context));
+		assertTrue(AMOUNT.toLongConverter("Invalid").convertToModel("1,5", context).isError());
+	}
+}
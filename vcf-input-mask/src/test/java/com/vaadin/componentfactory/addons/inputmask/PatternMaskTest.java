@@ -0,0 +1,137 @@
+package com.vaadin.componentfactory.addons.inputmask;
+
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.blocks;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.digitsOnly;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.function;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.lazy;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.option;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.overwrite;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.toLowercase;
+import static com.vaadin.componentfactory.addons.inputmask.InputMaskOption.toUppercase;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PatternMaskTest {
+
+	private static final String PHONE = "(000) 000-0000";
+
+	@Test
+	public void mask_insertsFixedChars() {
+		PatternMask mask = PatternMask.compile(PHONE);
+
+		assertEquals("(555) 123-4567", mask.mask("5551234567"));
+		assertEquals("(555) 123-4567", mask.mask("(555) 123-4567"));
+		assertEquals("(555) 12", mask.mask("55512"));
+		assertEquals("(555", mask.mask("555"));
+		assertEquals("", mask.mask(""));
+		assertEquals("", mask.mask(null));
+	}
+
+	@Test
+	public void unmask_keepsInputCharsOnly() {
+		PatternMask mask = PatternMask.compile(PHONE);
+
+		assertEquals("5551234567", mask.unmask("(555) 123-4567"));
+		assertEquals("5551234567", mask.unmask("5551234567"));
+		assertEquals("55512", mask.unmask("(555) 12"));
+	}
+
+	@Test
+	public void resolve_skipsRejectedChars() {
+		PatternMask mask = PatternMask.compile(PHONE);
+
+		MaskedValue value = mask.resolve("555x123-45678");
+
+		assertEquals("(555) 123-4567", value.getMaskedValue());
+		assertEquals("5551234567", value.getUnmaskedValue());
+		assertTrue(value.isComplete());
+		assertFalse(mask.resolve("555123").isComplete());
+	}
+
+	@Test
+	public void definitions_letterAndAny() {
+		PatternMask mask = PatternMask.compile("aa-**");
+
+		assertEquals("AB-1x", mask.mask("AB1x"));
+		assertEquals("AB", mask.mask("A1B"));
+	}
+
+	@Test
+	public void escapedAndUnmaskingFixedChars() {
+		assertEquals("0-12", PatternMask.compile("\\0-00").mask("12"));
+		assertEquals("12+34", PatternMask.compile("00{+}00").unmask("1234"));
+	}
+
+	@Test
+	public void optionalPart() {
+		PatternMask mask = PatternMask.compile("00[00]-a");
+
+		assertEquals("12-x", mask.mask("12x"));
+		assertEquals("1234-x", mask.mask("1234x"));
+		assertTrue(mask.resolve("12-x").isComplete());
+	}
+
+	@Test
+	public void lazyFalse_showsPlaceholders() {
+		PatternMask mask = PatternMask.compile(PHONE, lazy(false));
+
+		assertEquals("(555) 1__-____", mask.mask("5551"));
+		assertEquals("5551", mask.unmask("(555) 1__-____"));
+		assertEquals("(___) ___-____", mask.mask(""));
+
+		PatternMask custom = PatternMask.compile("00", lazy(false), option("placeholderChar", "#"));
+		assertEquals("1#", custom.mask("1"));
+	}
+
+	@Test
+	public void blocks_patternAndRange() {
+		PatternMask mask = PatternMask.compile("MM/YYYY",
+				blocks(option("MM", option("mask", PatternMask.MASKED_RANGE, true), option("from", 1),
+						option("to", 12)), option("YYYY", option("mask", "0000"))),
+				overwrite(true));
+
+		assertEquals("12/2023", mask.mask("122023"));
+		assertEquals("10/2", mask.mask("1302"));
+		assertTrue(mask.resolve("12/2023").isComplete());
+		assertFalse(mask.resolve("00/2023").isComplete());
+	}
+
+	@Test
+	public void prepare_namedFunctions() {
+		assertEquals("AB-12", PatternMask.compile("aa-00", toUppercase()).mask("ab12"));
+		assertEquals("ab-12", PatternMask.compile("aa-00", toLowercase()).mask("AB12"));
+		assertEquals("123", PatternMask.compile("***", digitsOnly()).mask("1 2-3"));
+		assertFalse(PatternMask.compile("00", function("prepare", "custom")).isSupported());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void evaluatedMask_isNotSupported() {
+		PatternMask mask = PatternMask.compile("Number", option("mask", "Number", true));
+
+		assertFalse(mask.isSupported());
+		mask.mask("1");
+	}
+
+	@Test
+	public void inputMask_masksOnServer() {
+		InputMask inputMask = new InputMask(PHONE);
+
+		assertEquals("(555) 123-4567", inputMask.mask("5551234567"));
+		assertEquals("5551234567", inputMask.unmask("(555) 123-4567"));
+	}
+
+	@Test
+	public void isCompleteAndAccepts() {
+		PatternMask mask = PatternMask.compile(PHONE);
+
+		assertTrue(mask.isComplete("(555) 123-4567"));
+		assertTrue(mask.isComplete("5551234567"));
+		assertFalse(mask.isComplete("(555) 123-456"));
+		assertTrue(mask.accepts("(555) 123-456"));
+		assertFalse(mask.accepts("(555) 123-45678"));
+		assertFalse(mask.accepts("555x1234567"));
+	}
+}